@@ -0,0 +1,61 @@
+package com.task1.javabot1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление расхода командой /add_ex при разном числе операций пользователя.
+ * <p>
+ * Каждая команда добавляет операцию, поэтому замер идет пачками по {@link #BATCH} команд,
+ * а перед каждой итерацией данные пользователя создаются заново — иначе список
+ * рос бы от итерации к итерации и последние итерации мерили бы другой размер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = AddExpenseBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = AddExpenseBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AddExpenseBenchmark {
+    static final int BATCH = 10_000;
+
+    /**
+     * Сколько доходов и сколько расходов у пользователя перед замером
+     */
+    @Param({"100", "10000", "1000000"})
+    public int operationsPerUser;
+
+    private MessageHandler handler;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkData.silenceOutput();
+        handler = new MessageHandler();
+        BenchmarkData.fill(handler, operationsPerUser);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        handler.close();
+        BenchmarkData.restoreOutput();
+    }
+
+    @Benchmark
+    public String addExpense() {
+        return handler.processUserInput("/add_ex 1500 Продукты еда", BenchmarkData.USER_ID);
+    }
+}
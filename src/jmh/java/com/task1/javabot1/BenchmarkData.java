@@ -0,0 +1,64 @@
+package com.task1.javabot1;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Наполнение обработчика операциями для бенчмарков.
+ */
+final class BenchmarkData {
+    static final String USER_ID = "bench-user";
+
+    private static final String[] EXPENSE_CATEGORIES = {"еда", "транспорт", "дом", "здоровье", "развлечения", "другое"};
+    private static final String[] INCOME_CATEGORIES = {"работа", "подарок"};
+    /**
+     * Операции распределены по двум годам до сегодняшнего дня
+     */
+    private static final int DAYS = 730;
+
+    private static PrintStream originalOut;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Добавляет пользователю заданное количество доходов и столько же расходов.
+     * Команды ставятся в очередь все сразу, дожидаемся только последней.
+     *
+     * @param handler обработчик
+     * @param operations сколько добавить операций каждого вида
+     */
+    static void fill(MessageHandler handler, int operations) {
+        LocalDate today = LocalDate.now();
+        CompletableFuture<Reply> last = null;
+        for (int i = 0; i < operations; i++) {
+            String date = DateCodec.format(today.minusDays(i % DAYS));
+            last = handler.submit("/add_ex " + (100 + i % 5000) + " Покупка" + i % 1000 + " "
+                    + EXPENSE_CATEGORIES[i % EXPENSE_CATEGORIES.length] + " " + date, USER_ID);
+            last = handler.submit("/add_in " + (1000 + i % 50000) + " Доход" + i % 100 + " "
+                    + INCOME_CATEGORIES[i % INCOME_CATEGORIES.length] + " " + date, USER_ID);
+        }
+        if (last != null) {
+            last.join();
+        }
+    }
+
+    /**
+     * Отключает вывод каждого сообщения в консоль, чтобы измерять команды, а не печать
+     */
+    static synchronized void silenceOutput() {
+        if (originalOut == null) {
+            originalOut = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    static synchronized void restoreOutput() {
+        if (originalOut != null) {
+            System.setOut(originalOut);
+            originalOut = null;
+        }
+    }
+}
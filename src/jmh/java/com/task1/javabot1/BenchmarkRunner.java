@@ -0,0 +1,30 @@
+package com.task1.javabot1;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запуск бенчмарков с профилировщиком выделения памяти.
+ * <p>
+ * Принимает те же параметры, что и org.openjdk.jmh.Main, например
+ * {@code java -jar target/benchmarks.jar CommandBenchmark -p operationsPerUser=10000}.
+ * Профилировщик gc включен всегда, поэтому в результатах есть gc.alloc.rate.norm —
+ * байты, выделенные на одну команду.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.task1.javabot1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Команды, которые только читают данные пользователя, при разном числе его операций.
+ * Каждая команда проходит весь путь: почтовый ящик, поиск в реестре, разбор и ответ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CommandBenchmark {
+    /**
+     * Сколько доходов и сколько расходов у пользователя
+     */
+    @Param({"100", "10000", "1000000"})
+    public int operationsPerUser;
+
+    private MessageHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceOutput();
+        handler = new MessageHandler();
+        BenchmarkData.fill(handler, operationsPerUser);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        handler.close();
+        BenchmarkData.restoreOutput();
+    }
+
+    /**
+     * Только разбор строки команды, без выполнения
+     */
+    @Benchmark
+    public MessageHandler.CommandParts parse() {
+        return handler.parseCommand("/add_ex 1500 Продукты на неделю еда 15.12.2025");
+    }
+
+    @Benchmark
+    public String balance() {
+        return handler.processUserInput("/balance", BenchmarkData.USER_ID);
+    }
+
+    @Benchmark
+    public String statistic() {
+        return handler.processUserInput("/statistic", BenchmarkData.USER_ID);
+    }
+
+    @Benchmark
+    public String statisticYear() {
+        return handler.processUserInput("/statistic year", BenchmarkData.USER_ID);
+    }
+
+    @Benchmark
+    public String statisticRange() {
+        return handler.processUserInput("/statistic 01.01.2000 31.12.2099", BenchmarkData.USER_ID);
+    }
+
+    @Benchmark
+    public String topExpenses() {
+        return handler.processUserInput("/top_ex", BenchmarkData.USER_ID);
+    }
+
+    @Benchmark
+    public String topExpensesInCategory() {
+        return handler.processUserInput("/top_ex 10 еда", BenchmarkData.USER_ID);
+    }
+
+    /**
+     * Первая страница списка доходов (UserData.showIncomes)
+     */
+    @Benchmark
+    public String showIncomes() {
+        return handler.processUserInput("/income", BenchmarkData.USER_ID);
+    }
+}
@@ -0,0 +1,217 @@
+package com.task1.javabot1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Локальный сервер, который изображает Telegram Bot API для нагрузочного теста.
+ * <p>
+ * getUpdates отдает поставленные в очередь обновления и, как Telegram, ждет новых
+ * до timeout секунд, если очередь пуста. sendMessage отвечает с заданной задержкой,
+ * а часть запросов получает ошибку 429 с retry_after. Остальные методы просто возвращают true.
+ */
+public class FakeBotApi implements AutoCloseable {
+    private static final String TRUE = "{\"ok\":true,\"result\":true}";
+    private static final String TOO_MANY_REQUESTS = "{\"ok\":false,\"error_code\":429,"
+            + "\"description\":\"Too Many Requests: retry after %d\",\"parameters\":{\"retry_after\":%d}}";
+    private static final int MAX_UPDATES_PER_RESPONSE = 100;
+
+    static {
+        // Без TCP_NODELAY заголовки и тело ответа уходят разными пакетами и ждут
+        // отложенного подтверждения, добавляя к каждому запросу десятки миллисекунд
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * Обновление, еще не подтвержденное ботом через offset
+     */
+    private static final class Pending {
+        private final long updateId;
+        private final String json;
+
+        private Pending(long updateId, String json) {
+            this.updateId = updateId;
+            this.json = json;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double tooManyRequestsRate;
+    private final int retryAfterSeconds;
+    private final Consumer<String> delivered;
+
+    private final ArrayDeque<Pending> updates = new ArrayDeque<>();
+    private long nextUpdateId = 1;
+    private boolean closed;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Запускает сервер на свободном локальном порту.
+     *
+     * @param latencyMillis задержка ответа на sendMessage
+     * @param jitterMillis случайная добавка к задержке от 0 до этого значения
+     * @param tooManyRequestsRate доля запросов sendMessage, получающих ошибку 429
+     * @param retryAfterSeconds retry_after в ошибке 429
+     * @param delivered получает chat_id каждого успешно отправленного сообщения
+     */
+    public FakeBotApi(long latencyMillis, long jitterMillis, double tooManyRequestsRate,
+                      int retryAfterSeconds, Consumer<String> delivered) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.tooManyRequestsRate = tooManyRequestsRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.delivered = delivered;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // Обычные потоки, а не виртуальные: getUpdates ждет внутри synchronized и на виртуальном
+        // потоке занимал бы поток-носитель, который в этом же процессе нужен боту
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Адрес для DefaultBotOptions.setBaseUrl
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * Ставит обновление в очередь getUpdates, присваивая ему следующий update_id.
+     *
+     * @param update обновление без update_id
+     */
+    public void push(Update update) {
+        synchronized (updates) {
+            update.setUpdateId((int) nextUpdateId);
+            try {
+                updates.add(new Pending(nextUpdateId++, mapper.writeValueAsString(update)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            updates.notifyAll();
+        }
+    }
+
+    /**
+     * Сколько сообщений принято успешно
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Сколько запросов получили ошибку 429
+     */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * Останавливает сервер. Ожидающие getUpdates сразу получают пустой ответ,
+     * чтобы бот мог остановиться, не дожидаясь конца long polling.
+     */
+    @Override
+    public void close() {
+        synchronized (updates) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            updates.notifyAll();
+        }
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            // Как и Telegram, имена методов не зависят от регистра: библиотека вызывает getupdates
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            JsonNode body;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readAllBytes();
+                body = bytes.length > 0 ? mapper.readTree(bytes) : mapper.createObjectNode();
+            }
+            String response = switch (method) {
+                case "getupdates" -> getUpdates(body);
+                case "sendmessage" -> sendMessage(body);
+                default -> TRUE;
+            };
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String getUpdates(JsonNode body) throws InterruptedException {
+        long offset = body.path("offset").asLong(0);
+        int limit = Math.min(body.path("limit").asInt(MAX_UPDATES_PER_RESPONSE), MAX_UPDATES_PER_RESPONSE);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(body.path("timeout").asLong(0));
+        StringBuilder response = new StringBuilder("{\"ok\":true,\"result\":[");
+        synchronized (updates) {
+            // Telegram забывает обновления с update_id меньше offset
+            while (!updates.isEmpty() && updates.peek().updateId < offset) {
+                updates.poll();
+            }
+            long remaining;
+            while (updates.isEmpty() && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(updates, remaining);
+            }
+            int count = 0;
+            for (Pending pending : updates) {
+                if (count == limit) {
+                    break;
+                }
+                response.append(count++ > 0 ? "," : "").append(pending.json);
+            }
+        }
+        return response.append("]}").toString();
+    }
+
+    private String sendMessage(JsonNode body) throws InterruptedException {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < tooManyRequestsRate) {
+            throttled.incrementAndGet();
+            return String.format(TOO_MANY_REQUESTS, retryAfterSeconds, retryAfterSeconds);
+        }
+        String chatId = body.path("chat_id").asText();
+        sent.incrementAndGet();
+        delivered.accept(chatId);
+        return "{\"ok\":true,\"result\":{\"message_id\":" + sent.get() + ",\"date\":"
+                + System.currentTimeMillis() / 1000 + ",\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"}}}";
+    }
+}
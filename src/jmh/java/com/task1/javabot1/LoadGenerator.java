@@ -0,0 +1,243 @@
+package com.task1.javabot1;
+
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный тест бота целиком: получение обновлений через getUpdates, обработка и отправка ответа.
+ * <p>
+ * Бот подключается к {@link FakeBotApi} вместо Telegram. Каждый из users пользователей
+ * отправляет messages сообщений, следующее — после ответа на предыдущее, так что одновременно
+ * в работе до users сообщений. Задержка сообщения — от постановки обновления в getUpdates
+ * до получения сервером sendMessage с ответом. В конце выводятся пропускная способность
+ * и перцентили задержки.
+ * <p>
+ * Параметры передаются как имя=значение:
+ * <pre>
+ * java -cp target/benchmarks.jar com.task1.javabot1.LoadGenerator users=1000 messages=100 \
+ *     mix=add_ex:40,balance:20,statistic:10,top_ex:10,expense:10,button:10 \
+ *     latencyMs=20 jitterMs=10 throttle=0.01 sendRate=100000 chatRate=1000
+ * </pre>
+ */
+public final class LoadGenerator {
+    /**
+     * Команды, из которых составляется смесь, по их имени в параметре mix
+     */
+    private static final Map<String, String> COMMANDS = new LinkedHashMap<>();
+
+    static {
+        COMMANDS.put("add_ex", "/add_ex 150 Кофе еда");
+        COMMANDS.put("add_in", "/add_in 50000 Зарплата работа");
+        COMMANDS.put("balance", "/balance");
+        COMMANDS.put("statistic", "/statistic");
+        COMMANDS.put("top_ex", "/top_ex");
+        COMMANDS.put("expense", "/expense");
+        COMMANDS.put("income", "/income");
+        COMMANDS.put("sum_expense", "/sum_expense");
+        COMMANDS.put("button", "Баланс");
+        COMMANDS.put("help", "/help");
+    }
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("users", "1000"),
+            Map.entry("messages", "100"),
+            Map.entry("mix", "add_ex:40,balance:20,statistic:10,top_ex:10,expense:10,button:10"),
+            Map.entry("latencyMs", "5"),
+            Map.entry("jitterMs", "5"),
+            Map.entry("throttle", "0"),
+            Map.entry("retryAfter", "1"),
+            Map.entry("sendRate", "100000"),
+            Map.entry("chatRate", "1000"),
+            Map.entry("connections", "256"));
+
+    /**
+     * Смоделированный пользователь: сколько сообщений осталось и когда отправлено текущее
+     */
+    private static final class SimulatedUser {
+        private final long id;
+        private int remaining;
+        private long sentAt;
+        private boolean awaitingReply;
+
+        private SimulatedUser(long id, int remaining) {
+            this.id = id;
+            this.remaining = remaining;
+        }
+    }
+
+    private final String[] mix;
+    private final Map<String, SimulatedUser> users = new ConcurrentHashMap<>();
+    private final long[] latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final CountDownLatch finished;
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private FakeBotApi api;
+
+    private LoadGenerator(int userCount, int messagesPerUser, String[] mix) {
+        this.mix = mix;
+        this.latencies = new long[userCount * messagesPerUser];
+        this.finished = new CountDownLatch(userCount);
+        for (int i = 0; i < userCount; i++) {
+            long id = 1_000_000 + i;
+            users.put(Long.toString(id), new SimulatedUser(id, messagesPerUser));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, TelegramApiException, InterruptedException {
+        Map<String, String> config = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg + ", допустимы " + DEFAULTS.keySet());
+            }
+            config.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        int userCount = Integer.parseInt(config.get("users"));
+        int messagesPerUser = Integer.parseInt(config.get("messages"));
+        LoadGenerator generator = new LoadGenerator(userCount, messagesPerUser, parseMix(config.get("mix")));
+        // Сервер закрывается явно до остановки сессии, поэтому он не в try-with-resources
+        FakeBotApi api = new FakeBotApi(Long.parseLong(config.get("latencyMs")),
+                Long.parseLong(config.get("jitterMs")), Double.parseDouble(config.get("throttle")),
+                Integer.parseInt(config.get("retryAfter")), generator::onDelivered);
+        generator.api = api;
+        PrintStream out = System.out;
+        BenchmarkData.silenceOutput();
+
+        long elapsed;
+        try (MessageHandler handler = new MessageHandler()) {
+
+            DefaultBotOptions options = new DefaultBotOptions();
+            options.setBaseUrl(api.getBaseUrl());
+            double sendRate = Double.parseDouble(config.get("sendRate"));
+            double chatRate = Double.parseDouble(config.get("chatRate"));
+            int connections = Integer.parseInt(config.get("connections"));
+            MyTelegramBot bot = new MyTelegramBot(handler, options, "load-test", connections,
+                    sender -> new SendQueue(sender, sendRate, chatRate, 100, 1_000_000, connections));
+            BotSession session = new TelegramBotsApi(DefaultBotSession.class).registerBot(bot);
+
+            long start = System.nanoTime();
+            for (SimulatedUser user : generator.users.values()) {
+                synchronized (user) {
+                    generator.sendNext(user);
+                }
+            }
+            generator.finished.await();
+            elapsed = System.nanoTime() - start;
+
+            // Сначала бот дописывает ответы, затем сервер отпускает long polling, чтобы сессия остановилась
+            bot.onClosing();
+            api.close();
+            session.stop();
+        } finally {
+            api.close();
+            BenchmarkData.restoreOutput();
+        }
+
+        generator.report(out, elapsed, config);
+    }
+
+    private static String[] parseMix(String mix) {
+        List<String> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            String command = COMMANDS.get(parts[0].trim());
+            if (command == null) {
+                throw new IllegalArgumentException("Неизвестная команда в mix: " + parts[0] + ", допустимы " + COMMANDS.keySet());
+            }
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                weighted.add(command);
+            }
+        }
+        return weighted.toArray(new String[0]);
+    }
+
+    /**
+     * Ставит в getUpdates следующее сообщение пользователя из смеси команд
+     */
+    private void sendNext(SimulatedUser user) {
+        User from = new User(user.id, "Нагрузка", false);
+        Chat chat = new Chat(user.id, "private");
+        Message message = new Message();
+        message.setMessageId(messageIds.incrementAndGet());
+        message.setFrom(from);
+        message.setChat(chat);
+        message.setDate((int) (System.currentTimeMillis() / 1000));
+        message.setText(mix[ThreadLocalRandom.current().nextInt(mix.length)]);
+        Update update = new Update();
+        update.setMessage(message);
+
+        user.sentAt = System.nanoTime();
+        user.awaitingReply = true;
+        user.remaining--;
+        api.push(update);
+    }
+
+    /**
+     * Сервер получил ответ пользователю: записывает задержку и отправляет следующее сообщение.
+     * Повторно принятый ответ на то же сообщение не учитывается.
+     */
+    private void onDelivered(String chatId) {
+        SimulatedUser user = users.get(chatId);
+        if (user == null) {
+            return;
+        }
+        synchronized (user) {
+            // HTTP-клиент может повторить запрос, ответ на который уже был принят
+            if (!user.awaitingReply) {
+                return;
+            }
+            user.awaitingReply = false;
+            latencies[recorded.getAndIncrement()] = System.nanoTime() - user.sentAt;
+            if (user.remaining > 0) {
+                sendNext(user);
+            } else {
+                finished.countDown();
+            }
+        }
+    }
+
+    private void report(PrintStream out, long elapsedNanos, Map<String, String> config) {
+        int count = recorded.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        out.printf("Параметры: %s%n", new TreeMap<>(config));
+        out.printf("Сообщений: %d за %.2f с, %.0f сообщений/с%n", count, seconds, count / seconds);
+        out.printf("Ответов 429: %d%n", api.getThrottled());
+        out.printf("Задержка, мс: p50 %.2f, p99 %.2f, p999 %.2f, max %.2f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                count > 0 ? sorted[count - 1] / 1e6 : 0.0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,328 @@
+package com.task1.javabot1;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронный структурированный журнал бота.
+ * <p>
+ * Записи кладутся в кольцевой буфер фиксированного размера и печатаются отдельным потоком
+ * в формате key=value, поэтому поток обработки не ждет консоль и не соревнуется за нее
+ * с другими потоками. Если буфер заполнен, запись отбрасывается и учитывается в {@link #getDropped()}.
+ * Записи ниже заданного уровня отбрасываются сразу, а записи DEBUG и INFO можно прореживать:
+ * при sampleEvery = 10 печатается примерно каждая десятая. WARN и ERROR печатаются всегда.
+ */
+public final class BotLog implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8192;
+    /**
+     * Сколько поток печати спит, если буфер пуст
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final BotLog GLOBAL = fromEnv();
+
+    /**
+     * Уровни записей по возрастанию важности
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * Ячейка буфера. sequence равен номеру записи, которую в ячейку можно положить,
+     * и номеру плюс один, когда запись положена и ее можно печатать
+     */
+    private static final class Slot {
+        private volatile long sequence;
+        private long time;
+        private Level level;
+        private String event;
+        private String userId;
+        private String command;
+        private long latencyNanos;
+        private String outcome;
+        private String detail;
+        private Throwable error;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Следующая запись для печати, меняется только потоком печати
+     */
+    private long head;
+    /**
+     * Сколько записей уже напечатано, для {@link #flush()}
+     */
+    private volatile long printed;
+    private final LongAdder dropped = new LongAdder();
+
+    private final Level level;
+    private final int sampleEvery;
+    private final Supplier<PrintStream> out;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private BotLog(Level level, int sampleEvery, int capacity, Supplier<PrintStream> out) {
+        if (sampleEvery < 1 || capacity < 1) {
+            throw new IllegalArgumentException("sampleEvery и capacity должны быть положительными");
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.level = level;
+        this.sampleEvery = sampleEvery;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "bot-log");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Создает журнал и запускает поток печати.
+     *
+     * @param level наименьший печатаемый уровень
+     * @param sampleEvery печатать одну из стольких записей DEBUG и INFO; 1 — печатать все
+     * @param capacity размер буфера, округляется вверх до степени двойки
+     * @param out куда печатать
+     */
+    public static BotLog start(Level level, int sampleEvery, int capacity, PrintStream out) {
+        return start(level, sampleEvery, capacity, () -> out);
+    }
+
+    /**
+     * Поток печати запускается только после конструктора, чтобы он не увидел недостроенный журнал
+     */
+    private static BotLog start(Level level, int sampleEvery, int capacity, Supplier<PrintStream> out) {
+        BotLog log = new BotLog(level, sampleEvery, capacity, out);
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * Журнал процесса. Уровень задается BOT_LOG_LEVEL (по умолчанию INFO),
+     * прореживание — BOT_LOG_SAMPLE (по умолчанию 1), размер буфера — BOT_LOG_BUFFER.
+     * Печатает в текущий System.out.
+     */
+    public static BotLog global() {
+        return GLOBAL;
+    }
+
+    private static BotLog fromEnv() {
+        String level = System.getenv().getOrDefault("BOT_LOG_LEVEL", "INFO");
+        String sample = System.getenv().getOrDefault("BOT_LOG_SAMPLE", "1");
+        String capacity = System.getenv().getOrDefault("BOT_LOG_BUFFER", String.valueOf(DEFAULT_CAPACITY));
+        BotLog log = start(Level.valueOf(level.toUpperCase(Locale.ROOT)), Integer.parseInt(sample),
+                Integer.parseInt(capacity), () -> System.out);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::flush, "bot-log-shutdown"));
+        return log;
+    }
+
+    /**
+     * Печатается ли запись этого уровня
+     */
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    /**
+     * Записывает обработку сообщения пользователя. Ошибки записываются как WARN,
+     * остальные исходы — как INFO.
+     *
+     * @param userId идентификатор пользователя
+     * @param command команда из реестра или {@link BotMetrics#UNKNOWN}
+     * @param latencyNanos время от получения сообщения до ответа
+     * @param outcome ok, unknown или error
+     */
+    public void message(String userId, String command, long latencyNanos, String outcome) {
+        publish("error".equals(outcome) ? Level.WARN : Level.INFO, "message", userId, command,
+                latencyNanos, outcome, null, null);
+    }
+
+    /**
+     * Записывает событие с произвольным описанием.
+     *
+     * @param level уровень
+     * @param event короткое имя события, например send_dropped
+     * @param detail описание или null
+     */
+    public void log(Level level, String event, String detail) {
+        publish(level, event, null, null, -1, null, detail, null);
+    }
+
+    /**
+     * Записывает ошибку уровня ERROR вместе со стеком вызовов.
+     *
+     * @param event короткое имя события
+     * @param detail описание или null
+     * @param error исключение
+     */
+    public void error(String event, String detail, Throwable error) {
+        publish(Level.ERROR, event, null, null, -1, null, detail, error);
+    }
+
+    /**
+     * Сколько записей отброшено из-за переполненного буфера
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Ждет, пока поток печати напечатает все записи, положенные в буфер до вызова.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (printed < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Печатает оставшиеся записи и останавливает поток печати. Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(Level level, String event, String userId, String command, long latencyNanos,
+                         String outcome, String detail, Throwable error) {
+        if (!isEnabled(level) || closed) {
+            return;
+        }
+        if (level.compareTo(Level.WARN) < 0 && sampleEvery > 1
+                && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return;
+        }
+        Slot slot;
+        long position;
+        while (true) {
+            position = tail.get();
+            slot = slots[(int) position & mask];
+            long lag = slot.sequence - position;
+            if (lag < 0) {
+                // ячейку еще не напечатали: буфер полон
+                dropped.increment();
+                return;
+            }
+            if (lag == 0 && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+            // ячейку уже занял другой поток после того, как был прочитан tail: пробуем снова
+        }
+
+        slot.time = System.currentTimeMillis();
+        slot.level = level;
+        slot.event = event;
+        slot.userId = userId;
+        slot.command = command;
+        slot.latencyNanos = latencyNanos;
+        slot.outcome = outcome;
+        slot.detail = detail;
+        slot.error = error;
+        slot.sequence = position + 1;
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            boolean stopping = closed;
+            Slot slot;
+            while ((slot = slots[(int) head & mask]).sequence == head + 1) {
+                format(slot, batch);
+                slot.event = slot.userId = slot.command = slot.outcome = slot.detail = null;
+                slot.error = null;
+                slot.sequence = head + slots.length;
+                head++;
+            }
+            if (!batch.isEmpty()) {
+                PrintStream stream = out.get();
+                stream.print(batch);
+                stream.flush();
+                batch.setLength(0);
+            }
+            printed = head;
+            if (stopping && tail.get() == head) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append("ts=").append(Instant.ofEpochMilli(slot.time))
+                .append(" level=").append(slot.level)
+                .append(" event=").append(slot.event);
+        appendField(line, "user", slot.userId);
+        appendField(line, "command", slot.command);
+        if (slot.latencyNanos >= 0) {
+            line.append(" latency_ms=").append(slot.latencyNanos / 1_000_000).append('.');
+            long micros = slot.latencyNanos / 1000 % 1000;
+            line.append(micros < 100 ? micros < 10 ? "00" : "0" : "").append(micros);
+        }
+        appendField(line, "outcome", slot.outcome);
+        appendField(line, "msg", slot.detail);
+        if (slot.error != null) {
+            appendField(line, "error", slot.error.toString());
+            StringWriter trace = new StringWriter();
+            slot.error.printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+        }
+        line.append(System.lineSeparator());
+    }
+
+    /**
+     * Добавляет поле; значения с пробелами, кавычками и переводами строк берутся в кавычки
+     */
+    private static void appendField(StringBuilder line, String key, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(' ').append(key).append('=');
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                default -> line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
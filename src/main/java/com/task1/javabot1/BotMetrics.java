@@ -0,0 +1,190 @@
+package com.task1.javabot1;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счетчики и гистограммы задержек по этапам обработки и командам.
+ * <p>
+ * Запись не берет блокировок: показатели этапа создаются один раз при первой записи,
+ * дальше обновляются только атомарные счетчики. Каждый набор показателей
+ * регистрируется в JMX как com.task1.javabot1:type=StageStats,stage=...,command=...,
+ * а {@link #writePrometheus} выводит все показатели в текстовом формате Prometheus.
+ */
+public class BotMetrics {
+    /**
+     * Метка для команд, которых нет в реестре
+     */
+    public static final String UNKNOWN = "unknown";
+
+    /**
+     * Границы ячеек гистограммы для Prometheus в секундах
+     */
+    private static final String[] PROMETHEUS_BUCKETS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+            "0.1", "0.25", "0.5", "1", "2.5", "5", "10"};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final BotMetrics GLOBAL = new BotMetrics(ManagementFactory.getPlatformMBeanServer());
+
+    /**
+     * Этапы обработки сообщения
+     */
+    public enum Stage {
+        /** Прием обновления от Telegram до передачи в почтовый ящик, по типу обновления */
+        RECEIVE("receive"),
+        /** Ожидание в почтовом ящике пользователя до начала обработки */
+        DISPATCH("dispatch"),
+        /** Поиск команды в реестре и разбор параметров */
+        PARSE("parse"),
+        /** Выполнение команды */
+        HANDLER("handler"),
+        /** Запрос к Telegram API, по методу API */
+        SEND("send");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<String, StageStats> stats = new ConcurrentHashMap<>();
+    private final MBeanServer mbeans;
+
+    /**
+     * Создает показатели без регистрации в JMX.
+     */
+    public BotMetrics() {
+        this(null);
+    }
+
+    private BotMetrics(MBeanServer mbeans) {
+        this.mbeans = mbeans;
+    }
+
+    /**
+     * Возвращает общие показатели процесса, зарегистрированные в JMX
+     */
+    public static BotMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Записывает успешное выполнение этапа.
+     *
+     * @param stage этап
+     * @param command команда, тип обновления или метод API
+     * @param nanos длительность в наносекундах
+     */
+    public void record(Stage stage, String command, long nanos) {
+        stats(stage, command).record(nanos, false);
+    }
+
+    /**
+     * Записывает выполнение этапа, завершившееся ошибкой.
+     *
+     * @param stage этап
+     * @param command команда, тип обновления или метод API
+     * @param nanos длительность в наносекундах
+     */
+    public void recordError(Stage stage, String command, long nanos) {
+        stats(stage, command).record(nanos, true);
+    }
+
+    /**
+     * Возвращает показатели этапа для команды, создавая их при первом обращении.
+     *
+     * @param stage этап
+     * @param command команда, тип обновления или метод API
+     * @return показатели
+     */
+    public StageStats stats(Stage stage, String command) {
+        String key = stage.getLabel() + ' ' + command;
+        StageStats existing = stats.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        StageStats created = new StageStats(stage, command);
+        existing = stats.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        register(created);
+        return created;
+    }
+
+    /**
+     * Возвращает все показатели по порядку этапов и команд
+     */
+    public List<StageStats> getStats() {
+        List<StageStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparing(StageStats::stage).thenComparing(StageStats::getCommand));
+        return all;
+    }
+
+    /**
+     * Выводит показатели в текстовом формате Prometheus: гистограмму bot_stage_seconds
+     * и счетчик ошибок bot_stage_errors_total с метками stage и command.
+     *
+     * @param out куда дописать
+     * @return тот же StringBuilder
+     */
+    public StringBuilder writePrometheus(StringBuilder out) {
+        List<StageStats> all = getStats();
+        out.append("# HELP bot_stage_seconds Длительность этапов обработки сообщений\n")
+                .append("# TYPE bot_stage_seconds histogram\n");
+        for (StageStats stage : all) {
+            LatencyHistogram latency = stage.getLatency();
+            String labels = labels(stage);
+            for (String bound : PROMETHEUS_BUCKETS) {
+                long nanos = (long) (Double.parseDouble(bound) * NANOS_PER_SECOND);
+                out.append("bot_stage_seconds_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+                        .append(latency.getCountAtOrBelow(nanos)).append('\n');
+            }
+            long count = latency.getCount();
+            out.append("bot_stage_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append("bot_stage_seconds_sum{").append(labels).append("} ")
+                    .append(latency.getSum() / NANOS_PER_SECOND).append('\n');
+            out.append("bot_stage_seconds_count{").append(labels).append("} ").append(count).append('\n');
+        }
+        out.append("# HELP bot_stage_errors_total Этапы, завершившиеся ошибкой\n")
+                .append("# TYPE bot_stage_errors_total counter\n");
+        for (StageStats stage : all) {
+            out.append("bot_stage_errors_total{").append(labels(stage)).append("} ")
+                    .append(stage.getErrors()).append('\n');
+        }
+        return out;
+    }
+
+    private static String labels(StageStats stats) {
+        return "stage=\"" + stats.getStage() + "\",command=\"" + escape(stats.getCommand()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private void register(StageStats created) {
+        if (mbeans == null) {
+            return;
+        }
+        try {
+            mbeans.registerMBean(created, new ObjectName("com.task1.javabot1:type=StageStats,stage="
+                    + created.getStage() + ",command=" + ObjectName.quote(created.getCommand())));
+        } catch (JMException e) {
+            BotLog.global().error("jmx_register_failed", created.getStage() + " " + created.getCommand(), e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.task1.javabot1;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Общий для всех пользователей словарь названий категорий по умолчанию.
+ * <p>
+ * Названия по умолчанию есть почти у каждого пользователя, поэтому хранятся в процессе один раз,
+ * а наборы категорий и операции ссылаются на общий экземпляр строки.
+ * Собственные категории пользователя в словарь не попадают и хранятся только в его данных,
+ * поэтому словарь не растет от пользовательского ввода. Словарь неизменяемый и читается без блокировок.
+ */
+public final class CategoryDictionary {
+    private static final CategoryDictionary GLOBAL = new CategoryDictionary(List.of(
+            "работа", "подарок", "еда", "транспорт", "дом", "здоровье", "развлечения", "другое"));
+
+    /**
+     * Каждое название по умолчанию указывает на свой общий экземпляр
+     */
+    private final Map<String, String> names = new HashMap<>();
+
+    private CategoryDictionary(List<String> names) {
+        for (String name : names) {
+            this.names.put(name, name);
+        }
+    }
+
+    /**
+     * Возвращает словарь процесса
+     */
+    public static CategoryDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Возвращает общий экземпляр строки для категории по умолчанию,
+     * а для собственной категории пользователя — само название
+     */
+    public String canonical(String name) {
+        return names.getOrDefault(name, name);
+    }
+}
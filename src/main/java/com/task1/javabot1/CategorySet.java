@@ -0,0 +1,123 @@
+package com.task1.javabot1;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемый набор категорий пользователя.
+ * <p>
+ * Названия хранятся отсортированным массивом: категории по умолчанию — общими экземплярами
+ * из {@link CategoryDictionary}, собственные категории — строками самого пользователя.
+ * Пока пользователь не менял категории, он ссылается на общий набор по умолчанию;
+ * изменение создает новый набор только для него, а набор, совпавший с общим, снова заменяется общим.
+ */
+public final class CategorySet {
+    /**
+     * Набор без категорий, общий для пользователей, удаливших все категории
+     */
+    private static final CategorySet EMPTY = new CategorySet(new String[0]);
+    /**
+     * Категории доходов нового пользователя
+     */
+    public static final CategorySet DEFAULT_INCOME = create(List.of("работа", "подарок"));
+    /**
+     * Категории расходов нового пользователя
+     */
+    public static final CategorySet DEFAULT_EXPENSE = create(List.of(
+            "еда", "транспорт", "дом", "здоровье", "развлечения", "другое"));
+
+    private static final CategorySet[] SHARED = {EMPTY, DEFAULT_INCOME, DEFAULT_EXPENSE};
+
+    /**
+     * Названия по алфавиту без повторов
+     */
+    private final String[] names;
+    private final List<String> sorted;
+
+    private CategorySet(String[] names) {
+        this.names = names;
+        this.sorted = Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Возвращает набор из указанных названий; повторы не учитываются
+     */
+    public static CategorySet of(Collection<String> names) {
+        return shared(create(names));
+    }
+
+    private static CategorySet create(Collection<String> names) {
+        CategoryDictionary dictionary = CategoryDictionary.global();
+        String[] sorted = new String[names.size()];
+        int size = 0;
+        for (String name : names) {
+            sorted[size++] = dictionary.canonical(name);
+        }
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || !sorted[unique - 1].equals(sorted[i])) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return new CategorySet(Arrays.copyOf(sorted, unique));
+    }
+
+    /**
+     * Заменяет набор общим, если их категории совпадают
+     */
+    private static CategorySet shared(CategorySet set) {
+        for (CategorySet shared : SHARED) {
+            if (Arrays.equals(shared.names, set.names)) {
+                return shared;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Есть ли категория в наборе
+     */
+    public boolean contains(String name) {
+        return Arrays.binarySearch(names, name) >= 0;
+    }
+
+    /**
+     * Возвращает набор с добавленной категорией или этот же набор, если она уже есть
+     */
+    public CategorySet with(String name) {
+        int index = Arrays.binarySearch(names, name);
+        if (index >= 0) {
+            return this;
+        }
+        int position = -index - 1;
+        String[] newNames = new String[names.length + 1];
+        System.arraycopy(names, 0, newNames, 0, position);
+        newNames[position] = CategoryDictionary.global().canonical(name);
+        System.arraycopy(names, position, newNames, position + 1, names.length - position);
+        return shared(new CategorySet(newNames));
+    }
+
+    /**
+     * Возвращает набор без категории или этот же набор, если ее нет
+     */
+    public CategorySet without(String name) {
+        int index = Arrays.binarySearch(names, name);
+        if (index < 0) {
+            return this;
+        }
+        String[] newNames = new String[names.length - 1];
+        System.arraycopy(names, 0, newNames, 0, index);
+        System.arraycopy(names, index + 1, newNames, index, newNames.length - index);
+        return shared(new CategorySet(newNames));
+    }
+
+    /**
+     * Возвращает названия категорий по алфавиту; список не копируется и не изменяется
+     */
+    public List<String> sorted() {
+        return sorted;
+    }
+}
@@ -0,0 +1,149 @@
+package com.task1.javabot1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реестр команд бота.
+ * Команда находится одним поиском в хеш-таблице как по имени (/income),
+ * так и по тексту кнопки («Список доходов»), поэтому новые команды не удлиняют разбор.
+ * Каждая команда знает, какие параметры ей нужны, и сама отвечает подсказкой,
+ * если их не хватает.
+ */
+public class CommandRegistry {
+
+    /**
+     * Какие параметры нужны команде
+     */
+    public enum Arguments {
+        /** Параметры не нужны и игнорируются */
+        NONE,
+        /** Нужен параметр-название */
+        NAME,
+        /** Нужны сумма и название */
+        AMOUNT_AND_NAME,
+        /** Параметры необязательны, команда проверяет их сама */
+        OPTIONAL
+    }
+
+    /**
+     * Выполняет команду с разобранными параметрами
+     */
+    @FunctionalInterface
+    public interface Handler {
+        String execute(String parameter_amount, String parameter_name, UserData userData);
+    }
+
+    /**
+     * Зарегистрированная команда
+     */
+    public static final class Command {
+        private final String name;
+        private final String button;
+        private final Arguments arguments;
+        private final String usage;
+        private final Handler handler;
+
+        private Command(String name, String button, Arguments arguments, String usage, Handler handler) {
+            this.name = name;
+            this.button = button;
+            this.arguments = arguments;
+            this.usage = usage;
+            this.handler = handler;
+        }
+
+        /**
+         * Возвращает имя команды, например /income
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Возвращает текст кнопки команды или null, если кнопки нет
+         */
+        public String getButton() {
+            return button;
+        }
+
+        /**
+         * Проверяет наличие нужных параметров и выполняет команду.
+         *
+         * @param parameter_amount параметр команды - сумма операции
+         * @param parameter_name параметр команды - название операции
+         * @param userData данные пользователя
+         * @return ответ команды или подсказка, если параметров не хватает
+         */
+        public String execute(String parameter_amount, String parameter_name, UserData userData) {
+            boolean missing = switch (arguments) {
+                case NAME -> parameter_name.isEmpty();
+                case AMOUNT_AND_NAME -> parameter_amount.isEmpty() || parameter_name.isEmpty();
+                case NONE, OPTIONAL -> false;
+            };
+            return missing ? usage : handler.execute(parameter_amount, parameter_name, userData);
+        }
+    }
+
+    private final Map<String, Command> commands = new HashMap<>();
+    private final List<Command> registered = new ArrayList<>();
+
+    /**
+     * Регистрирует команду без проверки параметров.
+     *
+     * @param name имя команды
+     * @param button текст кнопки или null
+     * @param handler обработчик команды
+     * @return этот реестр
+     */
+    public CommandRegistry register(String name, String button, Handler handler) {
+        return register(name, button, Arguments.NONE, null, handler);
+    }
+
+    /**
+     * Регистрирует команду.
+     *
+     * @param name имя команды
+     * @param button текст кнопки или null
+     * @param arguments какие параметры нужны команде
+     * @param usage подсказка, если параметров не хватает
+     * @param handler обработчик команды
+     * @return этот реестр
+     * @throws IllegalArgumentException если имя или кнопка уже заняты
+     */
+    public CommandRegistry register(String name, String button, Arguments arguments,
+                                    String usage, Handler handler) {
+        Command command = new Command(name, button, arguments, usage, handler);
+        put(name, command);
+        if (button != null) {
+            put(button, command);
+        }
+        registered.add(command);
+        return this;
+    }
+
+    private void put(String key, Command command) {
+        if (commands.putIfAbsent(key, command) != null) {
+            throw new IllegalArgumentException("Команда уже зарегистрирована: " + key);
+        }
+    }
+
+    /**
+     * Находит команду по имени или тексту кнопки.
+     *
+     * @param key имя команды или текст кнопки
+     * @return команда или null, если такой нет
+     */
+    public Command find(String key) {
+        return commands.get(key);
+    }
+
+    /**
+     * Возвращает команды в порядке регистрации
+     */
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(registered);
+    }
+}
@@ -0,0 +1,231 @@
+package com.task1.javabot1;
+
+/**
+ * Разбор текста команды за один проход без регулярных выражений и промежуточных массивов.
+ * Токенизатор запоминает только границы частей во входной строке,
+ * а строки создаются, когда часть действительно нужна.
+ * <p>
+ * Результат совпадает с прежним разбором через split("\\s+"):
+ * пробельными считаются те же символы, что и \s, а части обрезаются как String.trim().
+ * Объект не потокобезопасен и рассчитан на один разбор в пределах метода.
+ */
+public final class CommandTokenizer {
+    private static final int DATE_LENGTH = "dd.MM.yyyy".length();
+
+    private String input = "";
+    private int commandStart;
+    private int commandEnd;
+    private int amountStart;
+    private int amountEnd;
+    private int nameStart;
+    private int nameEnd;
+    private int categoryStart;
+    private int categoryEnd;
+    private int dateStart = -1;
+    private int dateEnd = -1;
+    private int words;
+    private boolean singleSpaced = true;
+
+    /**
+     * Разбирает команду на имя, сумму и название.
+     * Две части — имя команды и название; три и больше — имя, сумма и остаток строки как название.
+     *
+     * @param text текст сообщения, не пустой и не из одних пробелов
+     * @return этот токенизатор
+     */
+    public CommandTokenizer command(String text) {
+        input = text;
+        int begin = 0;
+        int end = text.length();
+        while (begin < end && text.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        commandStart = begin;
+        commandEnd = nextSpace(text, begin, end);
+        int second = skipSpaces(text, commandEnd, end);
+        int secondEnd = nextSpace(text, second, end);
+        int third = skipSpaces(text, secondEnd, end);
+        if (third < end) {
+            amountStart = second;
+            amountEnd = secondEnd;
+            nameStart = third;
+            nameEnd = end;
+        } else {
+            amountStart = end;
+            amountEnd = end;
+            nameStart = second;
+            nameEnd = secondEnd;
+        }
+        return this;
+    }
+
+    /**
+     * Разбирает параметры операции: название из нескольких слов, категорию и необязательную дату.
+     * Последнее слово — дата, если похоже на dd.MM.yyyy, перед ней — категория, остальное — название.
+     *
+     * @param text параметры без суммы, уже обрезанные по краям
+     * @return этот токенизатор
+     */
+    public CommandTokenizer operation(String text) {
+        input = text;
+        words = 0;
+        int irregularSpace = -1;
+        int lastStart = -1;
+        int lastEnd = -1;
+        int previousStart = -1;
+        int previousEnd = -1;
+        int beforePreviousEnd = -1;
+
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            if (isSpace(text.charAt(i))) {
+                int spaceStart = i;
+                i = skipSpaces(text, i, n);
+                if (irregularSpace < 0 && (i - spaceStart != 1 || text.charAt(spaceStart) != ' ')) {
+                    irregularSpace = spaceStart;
+                }
+                continue;
+            }
+            int start = i;
+            i = nextSpace(text, i, n);
+            words++;
+            beforePreviousEnd = previousEnd;
+            previousStart = lastStart;
+            previousEnd = lastEnd;
+            lastStart = start;
+            lastEnd = i;
+        }
+
+        nameStart = 0;
+        if (words >= 2 && isDate(text, lastStart, lastEnd)) {
+            dateStart = lastStart;
+            dateEnd = lastEnd;
+            categoryStart = previousStart;
+            categoryEnd = previousEnd;
+            nameEnd = Math.max(beforePreviousEnd, 0);
+        } else {
+            dateStart = -1;
+            dateEnd = -1;
+            categoryStart = lastStart;
+            categoryEnd = lastEnd;
+            nameEnd = Math.max(previousEnd, 0);
+        }
+        singleSpaced = irregularSpace < 0 || irregularSpace >= nameEnd;
+        return this;
+    }
+
+    /**
+     * Возвращает имя команды
+     */
+    public String command() {
+        return substring(commandStart, commandEnd);
+    }
+
+    /**
+     * Возвращает сумму или пустую строку
+     */
+    public String amount() {
+        return part(amountStart, amountEnd);
+    }
+
+    /**
+     * Возвращает название. После разбора операции слова названия разделены одним пробелом
+     */
+    public String name() {
+        if (singleSpaced) {
+            return part(nameStart, nameEnd);
+        }
+        StringBuilder name = new StringBuilder(nameEnd - nameStart);
+        int i = skipSpaces(input, nameStart, nameEnd);
+        while (i < nameEnd) {
+            int end = nextSpace(input, i, nameEnd);
+            if (!name.isEmpty()) {
+                name.append(' ');
+            }
+            name.append(input, i, end);
+            i = skipSpaces(input, end, nameEnd);
+        }
+        return name.toString().trim();
+    }
+
+    /**
+     * Возвращает категорию операции
+     */
+    public String category() {
+        return substring(categoryStart, categoryEnd);
+    }
+
+    /**
+     * Возвращает дату операции или null, если дата не указана
+     */
+    public String date() {
+        return dateStart < 0 ? null : substring(dateStart, dateEnd);
+    }
+
+    /**
+     * Возвращает количество слов в параметрах операции
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * Возвращает часть строки, обрезанную как String.trim()
+     */
+    private String part(int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return substring(start, end);
+    }
+
+    private String substring(int start, int end) {
+        return start == 0 && end == input.length() ? input : input.substring(start, end);
+    }
+
+    /**
+     * Проверяет, что слово выглядит как дата dd.MM.yyyy
+     */
+    private static boolean isDate(String text, int start, int end) {
+        if (end - start != DATE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < DATE_LENGTH; i++) {
+            char c = text.charAt(start + i);
+            boolean ok = i == 2 || i == 5 ? c == '.' : c >= '0' && c <= '9';
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Пробельные символы регулярного выражения \s
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int nextSpace(String text, int from, int end) {
+        while (from < end && !isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipSpaces(String text, int from, int end) {
+        while (from < end && isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+}
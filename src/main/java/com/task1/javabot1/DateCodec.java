@@ -0,0 +1,126 @@
+package com.task1.javabot1;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Разбор и вывод дат в формате dd.MM.yyyy без DateTimeFormatter и исключений.
+ * <p>
+ * Разбор принимает то же, что и LocalDate.parse с шаблоном dd.MM.yyyy:
+ * день и месяц из двух цифр, год из четырех цифр или со знаком «+» из пяти и более, а слишком большой
+ * для месяца день (например, 31.02) заменяется последним днем месяца.
+ * <p>
+ * Выведенные строки кешируются по номеру дня от эпохи: в списках операций
+ * одни и те же даты повторяются, поэтому строка обычно берется из кеша.
+ */
+public final class DateCodec {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final int MAX_YEAR_DIGITS = 9;
+    private static final int CACHE_SIZE = 4096;
+
+    /**
+     * Кеш с прямым отображением: день попадает в ячейку по младшим битам.
+     * Гонки при записи безопасны — ячейка хранит неизменяемую пару день-строка
+     */
+    private static final Rendered[] CACHE = new Rendered[CACHE_SIZE];
+
+    private static final class Rendered {
+        private final long epochDay;
+        private final String text;
+
+        private Rendered(long epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    private DateCodec() {
+    }
+
+    /**
+     * Разбирает дату dd.MM.yyyy.
+     *
+     * @param text строка с датой
+     * @return дата или null, если строка не является датой
+     */
+    public static LocalDate parse(CharSequence text) {
+        int length = text.length();
+        if (length < 10 || text.charAt(2) != '.' || text.charAt(5) != '.') {
+            return null;
+        }
+        int day = twoDigits(text, 0);
+        int month = twoDigits(text, 3);
+
+        // Год из четырех цифр или, как у DateTimeFormatter, со знаком «+» и большим числом цифр
+        boolean signed = text.charAt(6) == '+';
+        int yearStart = signed ? 7 : 6;
+        int yearDigits = length - yearStart;
+        if (signed ? yearDigits < 5 || yearDigits > MAX_YEAR_DIGITS : yearDigits != 4) {
+            return null;
+        }
+        int year = 0;
+        for (int i = yearStart; i < length; i++) {
+            int digit = digit(text.charAt(i));
+            if (digit < 0) {
+                return null;
+            }
+            year = year * 10 + digit;
+        }
+        if (day < 1 || day > 31 || month < 1 || month > 12 || year < 1 || year > LocalDate.MAX.getYear()) {
+            return null;
+        }
+        int monthLength = LocalDate.of(year, month, 1).lengthOfMonth();
+        return LocalDate.of(year, month, Math.min(day, monthLength));
+    }
+
+    /**
+     * Выводит дату в формате dd.MM.yyyy.
+     *
+     * @param date дата
+     * @return строка с датой
+     */
+    public static String format(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int slot = (int) (epochDay & (CACHE_SIZE - 1));
+        Rendered cached = CACHE[slot];
+        if (cached != null && cached.epochDay == epochDay) {
+            return cached.text;
+        }
+        String text = render(date);
+        CACHE[slot] = new Rendered(epochDay, text);
+        return text;
+    }
+
+    private static String render(LocalDate date) {
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return date.format(FORMATTER);
+        }
+        char[] chars = new char[10];
+        putTwoDigits(chars, 0, date.getDayOfMonth());
+        chars[2] = '.';
+        putTwoDigits(chars, 3, date.getMonthValue());
+        chars[5] = '.';
+        putTwoDigits(chars, 6, year / 100);
+        putTwoDigits(chars, 8, year % 100);
+        return new String(chars);
+    }
+
+    private static void putTwoDigits(char[] chars, int at, int value) {
+        chars[at] = (char) ('0' + value / 10);
+        chars[at + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Возвращает число из двух цифр или -1, если там не цифры
+     */
+    private static int twoDigits(CharSequence text, int at) {
+        int high = digit(text.charAt(at));
+        int low = digit(text.charAt(at + 1));
+        return high < 0 || low < 0 ? -1 : high * 10 + low;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
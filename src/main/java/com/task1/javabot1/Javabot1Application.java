@@ -1,8 +1,15 @@
 package com.task1.javabot1;
 
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
 /**
  * Главный класс для запуска Telegram бота.
  * Инициализирует и запускает бота.
@@ -11,12 +18,99 @@ public class Javabot1Application {
     /**
      * Точка входа в приложение.
      * Запускает Telegram бота.
+     * Данные пользователей восстанавливаются из снимка и журнала операций
+     * в каталоге BOT_DATA_DIR (по умолчанию — data).
+     * Адрес Telegram API можно заменить через BOT_API_URL, например на локальный сервер.
+     * <p>
+     * По умолчанию обновления получаются через Long Polling.
+     * При BOT_MODE=webhook бот слушает порт BOT_WEBHOOK_PORT (по умолчанию 8080)
+     * по пути BOT_WEBHOOK_PATH (по умолчанию /telegram) и проверяет секрет BOT_WEBHOOK_SECRET.
+     * Без секрета любой, кто знает адрес, мог бы присылать боту поддельные обновления,
+     * поэтому в режиме вебхука секрет обязателен.
+     * Если задан BOT_WEBHOOK_URL, вебхук с этим адресом регистрируется в Telegram при запуске.
+     * <p>
+     * Показатели бота доступны через JMX и в формате Prometheus по адресу
+     * http://localhost:BOT_METRICS_PORT/metrics (по умолчанию порт 9464).
+     * Журнал печатается асинхронно; уровень задает BOT_LOG_LEVEL (по умолчанию INFO),
+     * а BOT_LOG_SAMPLE=N оставляет примерно каждую N-ю запись о сообщениях.
      * @param args аргументы командной строки
      */
-    public static void main(String[] args) throws TelegramApiException {
-        MyTelegramBot bot = new MyTelegramBot();
-        TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-        botsApi.registerBot(bot);
-        System.out.println("Bot started working");
+    public static void main(String[] args) throws TelegramApiException, IOException {
+        boolean webhook = "webhook".equalsIgnoreCase(System.getenv("BOT_MODE"));
+        String webhookSecret = System.getenv("BOT_WEBHOOK_SECRET");
+        if (webhook && (webhookSecret == null || webhookSecret.isEmpty())) {
+            throw new IllegalStateException("В режиме вебхука нужно задать BOT_WEBHOOK_SECRET");
+        }
+
+        String dataDir = System.getenv().getOrDefault("BOT_DATA_DIR", "data");
+        MessageHandler messageHandler = new MessageHandler(Path.of(dataDir));
+        MyTelegramBot bot = new MyTelegramBot(messageHandler);
+        MetricsServer metricsServer = startMetrics();
+
+        if (webhook) {
+            startWebhook(bot, webhookSecret, metricsServer);
+        } else {
+            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+            BotSession session = botsApi.registerBot(bot);
+            addShutdownHook(bot, session, null, metricsServer);
+        }
+        BotLog.global().log(BotLog.Level.INFO, "started", "Bot started working");
+    }
+
+    /**
+     * Запускает сервер показателей. Если порт занят, бот работает без него.
+     */
+    private static MetricsServer startMetrics() {
+        String port = System.getenv("BOT_METRICS_PORT");
+        try {
+            return new MetricsServer(port != null ? Integer.parseInt(port) : MetricsServer.DEFAULT_PORT,
+                    BotMetrics.global());
+        } catch (IOException e) {
+            BotLog.global().error("metrics_failed", "Сервер показателей не запущен", e);
+            return null;
+        }
+    }
+
+    private static void startWebhook(MyTelegramBot bot, String secret, MetricsServer metricsServer)
+            throws IOException, TelegramApiException {
+        int port = Integer.parseInt(System.getenv().getOrDefault("BOT_WEBHOOK_PORT", "8080"));
+        String path = System.getenv().getOrDefault("BOT_WEBHOOK_PATH", "/telegram");
+
+        WebhookServer server = new WebhookServer(new InetSocketAddress(port), path, secret,
+                bot::onUpdateReceived);
+        addShutdownHook(bot, null, server, metricsServer);
+
+        String url = System.getenv("BOT_WEBHOOK_URL");
+        if (url != null) {
+            SetWebhook setWebhook = new SetWebhook();
+            setWebhook.setUrl(url);
+            setWebhook.setSecretToken(secret);
+            bot.execute(setWebhook);
+        }
+    }
+
+    /**
+     * При остановке сначала перестает принимать обновления: останавливает сессию Long Polling
+     * или сервер вебхука. Затем бот дожидается обработки команд и отправки ответов.
+     *
+     * @param session сессия Long Polling или null в режиме вебхука
+     * @param server сервер вебхука или null в режиме Long Polling
+     */
+    private static void addShutdownHook(MyTelegramBot bot, BotSession session,
+                                        WebhookServer server, MetricsServer metricsServer) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (session != null && session.isRunning()) {
+                // сессия вызывает bot.onClosing() сразу после остановки чтения обновлений
+                session.stop();
+            }
+            if (server != null) {
+                server.close();
+            }
+            bot.onClosing();
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            BotLog.global().close();
+        }));
     }
 }
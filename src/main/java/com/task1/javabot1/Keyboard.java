@@ -1,6 +1,8 @@
 package com.task1.javabot1;
 
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
 import java.util.ArrayList;
@@ -52,4 +54,30 @@ public class Keyboard {
         keyboard.setKeyboard(rows);
         return keyboard;
     }
+
+    /**
+     * Кнопки листания постраничного списка.
+     * Данные кнопки — команда нужной страницы, например /income 3.
+     * @param reply ответ со страницей списка
+     * @return InlineKeyboardMarkup – кнопки «назад» и «вперед»
+     */
+    public InlineKeyboardMarkup pagingKeyboard(Reply reply) {
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        if (reply.getPage() > 1) {
+            row.add(pageButton("◀ Назад", reply.getPageCommand(), reply.getPage() - 1));
+        }
+        if (reply.getPage() < reply.getPageCount()) {
+            row.add(pageButton("Вперед ▶", reply.getPageCommand(), reply.getPage() + 1));
+        }
+
+        InlineKeyboardMarkup keyboard = new InlineKeyboardMarkup();
+        keyboard.setKeyboard(List.of(row));
+        return keyboard;
+    }
+
+    private InlineKeyboardButton pageButton(String text, String command, int page) {
+        InlineKeyboardButton button = new InlineKeyboardButton(text);
+        button.setCallbackData(command + " " + page);
+        return button;
+    }
 }
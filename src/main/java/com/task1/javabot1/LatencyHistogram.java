@@ -0,0 +1,137 @@
+package com.task1.javabot1;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в наносекундах без блокировок, по образцу HdrHistogram.
+ * <p>
+ * Значения до 16 нс хранятся точно, дальше каждый интервал между степенями двойки
+ * делится на 16 равных ячеек, так что относительная погрешность не больше 1/16.
+ * Запись — одно атомарное увеличение ячейки и счетчиков, поэтому ее можно
+ * вызывать из любого количества потоков.
+ */
+public class LatencyHistogram {
+    /**
+     * log2 числа ячеек между соседними степенями двойки
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Значения больше 2^40 нс (около 18 минут) попадают в последнюю ячейку
+     */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Записывает значение; отрицательные считаются нулем.
+     *
+     * @param nanos задержка в наносекундах
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // значение обновил другой поток, пробуем еще раз
+        }
+    }
+
+    /**
+     * Возвращает количество записанных значений
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Возвращает сумму записанных значений в наносекундах
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Возвращает наибольшее записанное значение в наносекундах
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Возвращает значение, не больше которого доля quantile всех записанных значений.
+     * Результат — верхняя граница ячейки, но не больше максимума.
+     *
+     * @param quantile доля от 0 до 1, например 0.99
+     * @return значение в наносекундах или 0, если значений нет
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Возвращает количество значений, не больших bound.
+     * Ячейка, которая содержит bound, учитывается целиком.
+     *
+     * @param bound граница в наносекундах
+     * @return количество значений
+     */
+    public long getCountAtOrBelow(long bound) {
+        int last = bucketOf(Math.max(0, bound));
+        long total = 0;
+        for (int i = 0; i <= last; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Наибольшее значение, попадающее в ячейку
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
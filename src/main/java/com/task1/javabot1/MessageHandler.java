@@ -1,16 +1,45 @@
 package com.task1.javabot1;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Основной обработчик сообщений.
  * Отвечает за парсинг пользовательских команд, маршрутизацию и форматирование ответов.
  */
-public class MessageHandler {
-    private final Map<String, UserData> userDataMap = new ConcurrentHashMap<>();
+public class MessageHandler implements AutoCloseable {
+    private static final int DEFAULT_TOP_SIZE = 3;
+    private static final int MAX_TOP_SIZE = 50;
+    private static final String UNKNOWN_COMMAND =
+            "Неизвестная команда.\nВведите /help для просмотра доступных команд.";
+    private static final String AMOUNT_OVERFLOW =
+            "Ошибка! Итоговая сумма слишком велика, операция не выполнена.";
+    private static final String STATISTIC_USAGE = "Некорректный период.\n" +
+            "Используйте:\n" +
+            " /statistic - за текущий месяц\n" +
+            " /statistic today - за сегодня\n" +
+            " /statistic week - за текущую неделю\n" +
+            " /statistic month - за текущий месяц\n" +
+            " /statistic year - за текущий год\n" +
+            " /statistic 01.01.2025 31.03.2025 - за промежуток дат";
+
+    /**
+     * Данные пользователей: активные в памяти, давно неактивные выгружены на диск
+     */
+    private final UserCache users;
+    private final OperationJournal journal;
+    private final SnapshotStore snapshots;
+
+    /**
+     * Все обращения к данным пользователя идут через его почтовый ящик,
+     * поэтому UserData не нужна собственная синхронизация
+     */
+    private final UserMailboxes mailboxes = new UserMailboxes();
 
     /**
      * Приветственное сообщение, отправляемое пользователю при старте бота.
@@ -23,13 +52,13 @@ public class MessageHandler {
             /add_in — добавить доход
             /add_ex — добавить расход
             /balance — показать текущий баланс
-            /income —  список доходов
-            /expense — список расходов
+            /income —  список доходов (/income 2 — вторая страница)
+            /expense — список расходов (/expense 2 — вторая страница)
             /delete_in — удалить запись доходов
             /delete_ex — удалить запись расходов
-            /statistic — выводит сумму расходов, доходов и оставшийся бюджет
-            /top_ex — выводит 3 самых больших расхода
-            /top_in — выводит 3 самых больших дохода
+            /statistic — выводит сумму расходов, доходов и оставшийся бюджет (/statistic 01.01.2025 31.03.2025 — за промежуток)
+            /top_ex — выводит 3 самых больших расхода (/top_ex 10 еда — 10 самых больших в категории)
+            /top_in — выводит 3 самых больших дохода (/top_in 5 — 5 самых больших)
             /sum_income — Показывает общий доход
             /sum_expense — Показывает общий расход
             /count_ops — показывает количество доходов, расходов и операций
@@ -47,13 +76,13 @@ public class MessageHandler {
                 /add_in — добавить доход
                 /add_ex — добавить расход
                 /balance — показать текущий баланс
-                /income —  список доходов
-                /expense — список расходов
+                /income —  список доходов (/income 2 — вторая страница)
+                /expense — список расходов (/expense 2 — вторая страница)
                 /delete_in — удалить запись доходов
                 /delete_ex — удалить запись расходов
-                /statistic — выводит сумму расходов, доходов и оставшийся бюджет
-                /top_ex — выводит 3 самых больших расхода
-                /top_in — выводит 3 самых больших дохода
+                /statistic — выводит сумму расходов, доходов и оставшийся бюджет (/statistic 01.01.2025 31.03.2025 — за промежуток)
+                /top_ex — выводит 3 самых больших расхода (/top_ex 10 еда — 10 самых больших в категории)
+                /top_in — выводит 3 самых больших дохода (/top_in 5 — 5 самых больших)
                 /sum_income — Показывает общий доход
                 /sum_expense — Показывает общий расход
                 /count_ops — показывает количество доходов, расходов и операций
@@ -115,6 +144,108 @@ public class MessageHandler {
             
             """;
 
+    /**
+     * Команды бота по имени и тексту кнопки
+     */
+    private final CommandRegistry commands = createCommands();
+    private final BotMetrics metrics = BotMetrics.global();
+    private final BotLog log = BotLog.global();
+    private boolean closed;
+
+    /**
+     * Создает обработчик, который хранит данные пользователей только в памяти.
+     */
+    public MessageHandler() {
+        this.journal = null;
+        this.snapshots = null;
+        this.users = new UserCache(userId -> new UserData(userId, null));
+    }
+
+    /**
+     * Создает обработчик, который сохраняет изменения в журнал операций и периодически делает снимки.
+     * Перед началом работы загружается последний снимок и проигрывается хвост журнала после него.
+     *
+     * @param dataDir каталог для журнала операций и снимков
+     */
+    public MessageHandler(Path dataDir) throws IOException {
+        this(dataDir, SnapshotStore.DEFAULT_SNAPSHOT_EVERY_RECORDS);
+    }
+
+    /**
+     * Создает обработчик с заданной частотой снимков.
+     *
+     * @param dataDir каталог для журнала операций и снимков
+     * @param snapshotEveryRecords сколько записей журнала накапливать между снимками
+     */
+    MessageHandler(Path dataDir, long snapshotEveryRecords) throws IOException {
+        this(dataDir, snapshotEveryRecords, maxResidentUsersFromEnv());
+    }
+
+    /**
+     * Создает обработчик с заданной частотой снимков и ограничением на пользователей в памяти.
+     * Пользователи сверх ограничения выгружаются в подкаталог users.
+     *
+     * @param dataDir каталог для журнала операций и снимков
+     * @param snapshotEveryRecords сколько записей журнала накапливать между снимками
+     * @param maxResidentUsers сколько пользователей держать в памяти
+     */
+    MessageHandler(Path dataDir, long snapshotEveryRecords, int maxResidentUsers) throws IOException {
+        this.journal = OperationJournal.open(dataDir, OperationJournal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        this.snapshots = new SnapshotStore(dataDir, journal, snapshotEveryRecords);
+        try {
+            UserCache cache = new UserCache(userId -> new UserData(userId, journal),
+                    dataDir.resolve("users"), maxResidentUsers);
+            this.users = cache;
+            // лишние пользователи выгружаются по ходу загрузки, а не после нее,
+            // чтобы при запуске в памяти не оказывались сразу все пользователи
+            Function<String, UserData> loader = userId -> {
+                spillOverflow(cache);
+                return cache.get(userId);
+            };
+            long generation = snapshots.load(loader);
+            journal.replay(generation, loader);
+            spillOverflow(cache);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Выгружает пользователей сверх ограничения. Вызывается только до начала работы ящиков
+     */
+    private static void spillOverflow(UserCache cache) {
+        for (String userId : cache.overflow()) {
+            cache.evict(userId);
+        }
+    }
+
+    private static int maxResidentUsersFromEnv() {
+        String value = System.getenv("BOT_MAX_RESIDENT_USERS");
+        return value != null ? Integer.parseInt(value) : UserCache.DEFAULT_MAX_RESIDENT_USERS;
+    }
+
+    /**
+     * Дожидается выполнения принятых команд и записи начатого снимка,
+     * записывает на диск все накопленные изменения и закрывает журнал.
+     * Повторный вызов ничего не делает.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // снимок снимает состояние через ящики, поэтому дожидаемся его, пока ящики работают
+        if (snapshots != null) {
+            snapshots.close();
+        }
+        mailboxes.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     /**
      * Вспомогательный класс для хранения разобранных частей пользовательской команды.
      * Содержит команду и параметры, извлеченные из пользовательского ввода.
@@ -168,34 +299,20 @@ public class MessageHandler {
 
     /**
      * Парсит пользовательский ввод на команду и параметр.
-     * Разделяет входную строку по первому пробелу, если он присутствует.
+     * Разделяет входную строку по пробелам за один проход, без регулярных выражений.
      *
      * @param userInput пользовательский ввод для парсинга
      * @return объект CommandParts с разобранной командой и параметрами
      */
-    private CommandParts parseCommand(String userInput){
-    if (userInput.isBlank()){
-        return new CommandParts("", "", "");
-    }
-
-    String trimmedInput = userInput.trim();
-    String[] parts = trimmedInput.split("\\s+", 3);
-
-    String command = parts[0];
-    String parameter_amount = "";
-    String parameter_name = "";
+    CommandParts parseCommand(String userInput){
+        if (userInput.isBlank()){
+            return new CommandParts("", "", "");
+        }
 
-    if (parts.length == 2) {
-        parameter_name = parts[1].trim();
-    } 
-    else if (parts.length == 3) {
-        parameter_amount = parts[1].trim();
-        parameter_name = parts[2].trim();
+        CommandTokenizer tokens = new CommandTokenizer().command(userInput);
+        return new CommandParts(tokens.command(), tokens.amount(), tokens.name());
     }
 
-    return new CommandParts(command, parameter_amount, parameter_name);
-}
-
     /**
      * Обрабатывает ввод пользователя и возвращает ответ.
      *
@@ -204,21 +321,144 @@ public class MessageHandler {
      * @return текстовый ответ бота
      */
     public String processUserInput(String userInput, String userId) {
-        System.out.printf("Пришло сообщение %s от %s%n", userInput, userId);
-        UserData userData = userDataMap.computeIfAbsent(userId, k -> new UserData());
+        return reply(userInput, userId).getText();
+    }
+
+    /**
+     * Обрабатывает ввод пользователя и дожидается ответа.
+     *
+     * @param userInput текст сообщения от пользователя
+     * @param userId идентификатор пользователя для логирования
+     * @return ответ бота
+     */
+    public Reply reply(String userInput, String userId) {
+        return submit(userInput, userId).join();
+    }
+
+    /**
+     * Кладет команду в почтовый ящик пользователя.
+     * Команды одного пользователя выполняются по очереди, разных пользователей — параллельно.
+     * Действия, добавленные к результату, выполняются в очереди пользователя,
+     * поэтому ответы одному пользователю отправляются в порядке его команд.
+     * Ошибка команды не логируется здесь: результат завершается ею, и ее обрабатывает вызывающий.
+     *
+     * @param userInput текст сообщения от пользователя
+     * @param userId идентификатор пользователя
+     * @return ответ бота вместе со сведениями о страницах, если запрошен постраничный список
+     */
+    public CompletableFuture<Reply> submit(String userInput, String userId) {
+        CompletableFuture<Reply> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        mailboxes.submit(userId, () -> {
+            try {
+                result.complete(handle(userInput, userId, submittedAt));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
 
-        CommandParts parts = parseCommand(userInput);
+    /**
+     * Выполняет команду пользователя. Вызывается только из его почтового ящика.
+     * Время ожидания в ящике, разбора и выполнения команды записывается в {@link BotMetrics},
+     * а сама обработка — одной записью в {@link BotLog}.
+     *
+     * @param submittedAt когда команда поставлена в ящик, по System.nanoTime
+     */
+    private Reply handle(String userInput, String userId, long submittedAt) {
+        long started = System.nanoTime();
+        UserData userData = users.get(userId);
+
+        // Кнопка или команда без параметров находится сразу, остальное разбирается на части
+        long parseStarted = System.nanoTime();
+        CommandRegistry.Command found = commands.find(userInput.trim());
+        CommandParts parts = found != null
+                ? new CommandParts(found.getName(), "", "")
+                : parseCommand(userInput);
+        if (found == null) {
+            found = commands.find(parts.getCommand());
+        }
         String command = parts.getCommand();
         String parameter_amount = parts.getParameterAmount();
         String parameter_name = parts.getParameterName();
 
-        return Response(command, parameter_amount, parameter_name, userData);
+        String label = found != null ? found.getName() : BotMetrics.UNKNOWN;
+        long handlerStarted = System.nanoTime();
+        metrics.record(BotMetrics.Stage.DISPATCH, label, started - submittedAt);
+        metrics.record(BotMetrics.Stage.PARSE, label, handlerStarted - parseStarted);
+
+        String response;
+        try {
+            response = found != null
+                    ? found.execute(parameter_amount, parameter_name, userData)
+                    : UNKNOWN_COMMAND;
+        } catch (ArithmeticException e) {
+            // итоги не поместились в long; операция не выполнена, но пользователь получает ответ
+            response = AMOUNT_OVERFLOW;
+        } catch (RuntimeException e) {
+            long finished = System.nanoTime();
+            metrics.recordError(BotMetrics.Stage.HANDLER, label, finished - handlerStarted);
+            log.message(userId, label, finished - submittedAt, "error");
+            throw e;
+        }
+        long finished = System.nanoTime();
+        metrics.record(BotMetrics.Stage.HANDLER, label, finished - handlerStarted);
+        log.message(userId, label, finished - submittedAt, found != null ? "ok" : "unknown");
+        Reply reply = new Reply(response);
+        if ("/income".equals(command) || "/expense".equals(command)) {
+            int page = parsePage(parameter_amount, parameter_name);
+            int pageCount = "/income".equals(command)
+                    ? userData.getIncomePageCount()
+                    : userData.getExpensePageCount();
+            if (page >= 1 && page <= pageCount) {
+                reply = new Reply(response, command, page, pageCount);
+            }
+        }
+
+        for (String idleUserId : users.overflow()) {
+            mailboxes.submit(idleUserId, () -> {
+                users.evict(idleUserId);
+                removeMailboxIfSpilled(idleUserId);
+            });
+        }
+        if (snapshots != null) {
+            snapshots.maybeSnapshot(users::userIds, this::captureUser);
+        }
+        return reply;
+    }
 
+    /**
+     * Ставит в ящик пользователя, в том числе выгруженного, задачу закодировать его данные для снимка.
+     *
+     * @param userId идентификатор пользователя
+     * @return закодированные данные пользователя
+     */
+    private CompletableFuture<byte[]> captureUser(String userId) {
+        CompletableFuture<byte[]> record = new CompletableFuture<>();
+        mailboxes.submit(userId, () -> {
+            try {
+                record.complete(users.encode(userId));
+            } catch (RuntimeException e) {
+                record.completeExceptionally(e);
+            }
+            removeMailboxIfSpilled(userId);
+        });
+        return record;
+    }
+
+    /**
+     * Убирает ящик выгруженного пользователя. Вызывается последним действием задачи из его ящика
+     */
+    private void removeMailboxIfSpilled(String userId) {
+        if (!users.isResident(userId)) {
+            mailboxes.removeIfIdle(userId);
+        }
     }
 
     /**
      * Выбирает ответ, в зависимости от сообщения пользователя.
-     * Маршрутизирует команды к соответствующим методам обработки.
+     * Команда находится в реестре одним поиском по имени.
      *
      * @param command   команда для выполнения
      * @param parameter_amount параметр команды - сумма операции
@@ -227,269 +467,251 @@ public class MessageHandler {
      * @return выбранный текстовый ответ
      */
     public String Response(String command, String parameter_amount, String parameter_name, UserData userData) {
-
-        if ("/start".equals(command)) {
-            return START_MESSAGE;
-        }
-
-        if ("/help".equals(command)) {
-            return HELP_MESSAGE;
-        }
-
-        if ("/cat_in".equals(command)) {
-            return userData.showIncomeCategories();
+        CommandRegistry.Command found = commands.find(command);
+        if (found == null) {
+            return UNKNOWN_COMMAND;
         }
+        return found.execute(parameter_amount, parameter_name, userData);
+    }
 
-        if ("/cat_ex".equals(command)) {
-            return userData.showExpenseCategories();
-        }
+    /**
+     * Регистрирует команды бота и тексты кнопок основной клавиатуры.
+     */
+    private CommandRegistry createCommands() {
+        CommandRegistry registry = new CommandRegistry();
+        registry.register("/start", null, (amount, name, userData) -> START_MESSAGE)
+                .register("/help", "Помощь", (amount, name, userData) -> HELP_MESSAGE)
+                .register("/cat_in", null, (amount, name, userData) -> userData.showIncomeCategories())
+                .register("/cat_ex", null, (amount, name, userData) -> userData.showExpenseCategories())
+                .register("/add_cat_in", null, CommandRegistry.Arguments.NAME,
+                        "Ошибка! Укажите название категории.\nПример: /add_cat_in инвестиции",
+                        (amount, name, userData) -> userData.addIncomeCategory(name))
+                .register("/add_cat_ex", null, CommandRegistry.Arguments.NAME,
+                        "Ошибка! Укажите название категории.\nПример: /add_cat_ex кафе",
+                        (amount, name, userData) -> userData.addExpenseCategory(name))
+                .register("/del_cat_in", null, CommandRegistry.Arguments.NAME,
+                        "Ошибка! Укажите название категории.\nПример: /del_cat_in инвестиции",
+                        (amount, name, userData) -> userData.deleteIncomeCategory(name))
+                .register("/del_cat_ex", null, CommandRegistry.Arguments.NAME,
+                        "Ошибка! Укажите название категории.\nПример: /del_cat_ex кафе",
+                        (amount, name, userData) -> userData.deleteExpenseCategory(name))
+                .register("/add_in", null, CommandRegistry.Arguments.AMOUNT_AND_NAME,
+                        "Ошибка! Укажите сумму, название и категорию.\n" +
+                                "Пример: /add_in 50000 Зарплата работа\n" +
+                                "Или с датой: /add_in 50000 Зарплата работа 15.12.2025",
+                        (amount, name, userData) -> addOperation(amount, name, userData, true))
+                .register("/add_ex", null, CommandRegistry.Arguments.AMOUNT_AND_NAME,
+                        "Ошибка! Укажите сумму, название и категорию.\n" +
+                                "Пример: /add_ex 1500 Продукты еда\n" +
+                                "Или с датой: /add_ex 1500 Продукты еда 15.12.2025",
+                        (amount, name, userData) -> addOperation(amount, name, userData, false))
+                .register("/income", "Список доходов", CommandRegistry.Arguments.OPTIONAL, null,
+                        (amount, name, userData) -> {
+                            int page = parsePage(amount, name);
+                            if (page < 1) {
+                                return "Некорректный номер страницы.\nПример: /income 2";
+                            }
+                            return userData.showIncomes(page);
+                        })
+                .register("/expense", "Список расходов", CommandRegistry.Arguments.OPTIONAL, null,
+                        (amount, name, userData) -> {
+                            int page = parsePage(amount, name);
+                            if (page < 1) {
+                                return "Некорректный номер страницы.\nПример: /expense 2";
+                            }
+                            return userData.showExpenses(page);
+                        })
+                .register("/statistic", "Статистика", CommandRegistry.Arguments.OPTIONAL, null,
+                        (amount, name, userData) -> showStatistics(amount, name, userData))
+                .register("/delete_in", null, CommandRegistry.Arguments.AMOUNT_AND_NAME,
+                        "Ошибка! Укажите сумму и название:\n/delete_in 25000 Премия",
+                        (amount, name, userData) -> deleteOperation(amount, name, userData, true))
+                .register("/delete_ex", null, CommandRegistry.Arguments.AMOUNT_AND_NAME,
+                        "Ошибка! Укажите сумму и название:\n/delete_ex 1500 Продукты",
+                        (amount, name, userData) -> deleteOperation(amount, name, userData, false))
+                .register("/balance", "Баланс", (amount, name, userData) -> {
+                    Money balance = userData.getIncomeTotal().minus(userData.getExpenseTotal());
+                    return "Текущий баланс: " + MoneyFormat.format(balance);
+                })
+                .register("/top_ex", "Топ расходов", CommandRegistry.Arguments.OPTIONAL, null,
+                        (amount, name, userData) -> showTop(amount, name, userData, false))
+                .register("/top_in", "Топ доходов", CommandRegistry.Arguments.OPTIONAL, null,
+                        (amount, name, userData) -> showTop(amount, name, userData, true))
+                .register("/sum_income", "Сумма доходов", (amount, name, userData) ->
+                        "💰 Сумма доходов: " + MoneyFormat.format(userData.getIncomeTotal()))
+                .register("/sum_expense", "Сумма расходов", (amount, name, userData) ->
+                        "💸 Сумма расходов: " + MoneyFormat.format(userData.getExpenseTotal()))
+                .register("/count_ops", "Количество операций", (amount, name, userData) -> {
+                    int incomeCount = userData.getIncomeCount();
+                    int expenseCount = userData.getExpenseCount();
+                    int totalOps = incomeCount + expenseCount;
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("📊 Количество операций:\n")
+                            .append("➕ Доходы: ").append(incomeCount).append("\n")
+                            .append("➖ Расходы: ").append(expenseCount).append("\n")
+                            .append(" Всего операций: ").append(totalOps);
+                    return sb.toString().trim();
+                });
+        return registry;
+    }
 
-        if ("/add_cat_in".equals(command)) {
-            if (parameter_name.isEmpty()) {
-                return "Ошибка! Укажите название категории.\nПример: /add_cat_in инвестиции";
+    /**
+     * Добавляет доход или расход: /add_ex 1500 Продукты еда [15.12.2025].
+     * Последнее слово — категория, перед ней может стоять дата.
+     *
+     * @param parameter_amount сумма операции
+     * @param parameter_name название, категория и необязательная дата
+     * @param userData данные пользователя
+     * @param incomes true — доход, false — расход
+     * @return результат добавления или сообщение об ошибке
+     */
+    private String addOperation(String parameter_amount, String parameter_name, UserData userData, boolean incomes) {
+        try {
+            Money amount = Money.parse(parameter_amount);
+            CommandTokenizer tokens = new CommandTokenizer().operation(parameter_name);
+            if (tokens.words() < 2) {
+                return "Ошибка! Укажите название и категорию.\n" +
+                        (incomes ? "Пример: /add_in 50000 Зарплата работа" : "Пример: /add_ex 1500 Продукты еда");
             }
-            return userData.addIncomeCategory(parameter_name);
-        }
-
-        if ("/add_cat_ex".equals(command)) {
-            if (parameter_name.isEmpty()) {
-                return "Ошибка! Укажите название категории.\nПример: /add_cat_ex кафе";
+            String name = tokens.name();
+            String category = tokens.category();
+            String date = tokens.date();
+            if (name.isEmpty()) {
+                return "Ошибка! Укажите название операции.";
             }
-            return userData.addExpenseCategory(parameter_name);
-        }
 
-        if ("/del_cat_in".equals(command)) {
-            if (parameter_name.isEmpty()) {
-                return "Ошибка! Укажите название категории.\nПример: /del_cat_in инвестиции";
-            }
-            return userData.deleteIncomeCategory(parameter_name);
+            return incomes
+                    ? userData.addIncome(name, amount, category, date)
+                    : userData.addExpense(name, amount, category, date);
+        } catch (NumberFormatException e) {
+            return "Некорректная сумма: " + parameter_amount;
         }
+    }
 
-        if ("/del_cat_ex".equals(command)) {
-            if (parameter_name.isEmpty()) {
-                return "Ошибка! Укажите название категории.\nПример: /del_cat_ex кафе";
-            }
-            return userData.deleteExpenseCategory(parameter_name);
+    /**
+     * Удаляет доход или расход по сумме и названию.
+     *
+     * @param parameter_amount сумма операции
+     * @param parameter_name название операции
+     * @param userData данные пользователя
+     * @param incomes true — доход, false — расход
+     * @return результат удаления или сообщение об ошибке
+     */
+    private String deleteOperation(String parameter_amount, String parameter_name, UserData userData, boolean incomes) {
+        try {
+            Money amount = Money.parse(parameter_amount);
+            return incomes
+                    ? userData.deleteIncome(parameter_name, amount)
+                    : userData.deleteExpense(parameter_name, amount);
+        } catch (NumberFormatException e) {
+            return "Некорректная сумма: " + parameter_amount;
         }
+    }
 
-        if ("/add_in".equals(command)) {
-            if (parameter_amount.isEmpty() || parameter_name.isEmpty()) {
-                return "Ошибка! Укажите сумму, название и категорию.\n" +
-                        "Пример: /add_in 50000 Зарплата работа\n" +
-                        "Или с датой: /add_in 50000 Зарплата работа 15.12.2025";
-            }
-
-            try {
-                double amount = Double.parseDouble(parameter_amount);
-                String[] nameParts = parameter_name.split("\\s+");
-                if (nameParts.length < 2) {
-                    return "Ошибка! Укажите название и категорию.\n" +
-                            "Пример: /add_in 50000 Зарплата работа";
-                }
-                String name;
-                String category;
-                String date = null;
-
-                int lastIndex = nameParts.length - 1;
-                String lastPart = nameParts[lastIndex];
-                if (lastPart.matches("\\d{2}\\.\\d{2}\\.\\d{4}")) {
-                    date = lastPart;
-                    lastIndex--;
-                }
-
-                category = nameParts[lastIndex];
-                StringBuilder nameBuilder = new StringBuilder();
-                for (int i = 0; i < lastIndex; i++) {
-                    if (i > 0) nameBuilder.append(" ");
-                    nameBuilder.append(nameParts[i]);
-                }
-                name = nameBuilder.toString().trim();
-                if (name.isEmpty()) {
-                    return "Ошибка! Укажите название операции.";
-                }
-
-                return userData.addIncome(name, amount, category, date);
-            } catch (NumberFormatException e) {
-                return "Некорректная сумма: " + parameter_amount;
+    /**
+     * Показывает статистику за период: пусто, today, week, month, year
+     * или две даты dd.MM.yyyy — начало и конец промежутка включительно.
+     *
+     * @param parameter_amount дата начала промежутка или пустая строка
+     * @param parameter_name период или дата конца промежутка
+     * @param userData данные пользователя
+     * @return статистика или подсказка, если период указан некорректно
+     */
+    private String showStatistics(String parameter_amount, String parameter_name, UserData userData) {
+        if (!parameter_amount.isEmpty()) {
+            LocalDate from = DateCodec.parse(parameter_amount);
+            LocalDate to = DateCodec.parse(parameter_name);
+            if (from != null && to != null && !from.isAfter(to)) {
+                return userData.getStatistics(from, to);
             }
+            return STATISTIC_USAGE;
         }
 
-        if ("/add_ex".equals(command)) {
-            if (parameter_amount.isEmpty() || parameter_name.isEmpty()) {
-                return "Ошибка! Укажите сумму, название и категорию.\n" +
-                        "Пример: /add_ex 1500 Продукты еда\n" +
-                        "Или с датой: /add_ex 1500 Продукты еда 15.12.2025";
-            }
-
-            try {
-                double amount = Double.parseDouble(parameter_amount);
-                String[] nameParts = parameter_name.split("\\s+");
-                if (nameParts.length < 2) {
-                    return "Ошибка! Укажите название и категорию.\n" +
-                            "Пример: /add_ex 1500 Продукты еда";
-                }
-                String name;
-                String category;
-                String date = null;
-
-                int lastIndex = nameParts.length - 1;
-                String lastPart = nameParts[lastIndex];
-                if (lastPart.matches("\\d{2}\\.\\d{2}\\.\\d{4}")) {
-                    date = lastPart;
-                    lastIndex--;
-                }
-
-                category = nameParts[lastIndex];
-                StringBuilder nameBuilder = new StringBuilder();
-                for (int i = 0; i < lastIndex; i++) {
-                    if (i > 0) nameBuilder.append(" ");
-                    nameBuilder.append(nameParts[i]);
-                }
-                name = nameBuilder.toString().trim();
-                if (name.isEmpty()) {
-                    return "Ошибка! Укажите название операции.";
-                }
-
-                return userData.addExpense(name, amount, category, date);
-            } catch (NumberFormatException e) {
-                return "Некорректная сумма: " + parameter_amount;
-            }
+        String period = parameter_name.trim().toLowerCase();
+        List<String> validPeriods = Arrays.asList("", "today", "week", "month", "year");
+        if (!validPeriods.contains(period)) {
+            return STATISTIC_USAGE;
         }
 
-        if ("/income".equals(command)) {
-            return userData.showIncomes();
-        }
+        return userData.getStatistics(period);
+    }
 
-        if ("/expense".equals(command)) {
-            return userData.showExpenses();
+    /**
+     * Разбирает номер страницы списка: /income, /income 2 или /income page 2.
+     *
+     * @param parameter_amount первый параметр команды
+     * @param parameter_name последний параметр команды
+     * @return номер страницы или -1, если номер указан некорректно
+     */
+    private int parsePage(String parameter_amount, String parameter_name) {
+        if (parameter_name.isEmpty()) {
+            return 1;
         }
-
-        if ("/statistic".equals(command)) {
-            String period = parameter_name.trim().toLowerCase();
-            List<String> validPeriods = Arrays.asList("", "today", "week", "month", "year");
-            if (!validPeriods.contains(period)) {
-                return "Некорректный период.\n" +
-                        "Используйте:\n" +
-                        " /statistic - за текущий месяц\n" +
-                        " /statistic today - за сегодня\n" +
-                        " /statistic week - за текущую неделю\n" +
-                        " /statistic month - за текущий месяц\n" +
-                        " /statistic year - за текущий год";
-            }
-
-            return userData.getStatistics(period);
+        if (!parameter_amount.isEmpty() && !"page".equalsIgnoreCase(parameter_amount)) {
+            return -1;
         }
+        try {
+            int page = Integer.parseInt(parameter_name);
+            return page >= 1 ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
-        if ("/delete_in".equals(command)) {
-            if (parameter_amount.isEmpty() || parameter_name.isEmpty()) {
-                return "Ошибка! Укажите сумму и название:\n/delete_in 25000 Премия";
-            }
-            try {
-                double amount = Double.parseDouble(parameter_amount);
-                return userData.deleteIncome(parameter_name, amount);
-            } catch (NumberFormatException e) {
-                return "Некорректная сумма: " + parameter_amount;
-            }
+    /**
+     * Показывает самые большие операции.
+     * Принимает необязательные количество и категорию: /top_ex, /top_ex 10, /top_ex еда, /top_ex 10 еда
+     *
+     * @param parameter_amount первый параметр команды
+     * @param parameter_name второй параметр команды
+     * @param userData данные пользователя
+     * @param incomes true — доходы, false — расходы
+     * @return топ операций или сообщение об ошибке
+     */
+    private String showTop(String parameter_amount, String parameter_name, UserData userData, boolean incomes) {
+        String countParameter = parameter_amount;
+        String category = parameter_name.isEmpty() ? null : parameter_name;
+        if (countParameter.isEmpty() && category != null && category.chars().allMatch(Character::isDigit)) {
+            countParameter = category;
+            category = null;
         }
 
-        if ("/delete_ex".equals(command)) {
-            if (parameter_amount.isEmpty() || parameter_name.isEmpty()) {
-                return "Ошибка! Укажите сумму и название:\n/delete_ex 1500 Продукты";
-            }
+        int limit = DEFAULT_TOP_SIZE;
+        if (!countParameter.isEmpty()) {
             try {
-                double amount = Double.parseDouble(parameter_amount);
-                return userData.deleteExpense(parameter_name, amount);
+                limit = Integer.parseInt(countParameter);
             } catch (NumberFormatException e) {
-                return "Некорректная сумма: " + parameter_amount;
-            }
-        }
-
-        if ("/balance".equals(command)) {
-            List<Operation> incomes = userData.getAllIncomes();
-            List<Operation> expenses = userData.getAllExpenses();
-
-            double incomeSum = incomes.stream()
-                    .mapToDouble(Operation::getAmount)
-                    .sum();
-            double expenseSum = expenses.stream()
-                    .mapToDouble(Operation::getAmount)
-                    .sum();
-            double balance = incomeSum - expenseSum;
-
-            return "Текущий баланс: " + String.format("%,.2f", balance);
-        }
-        if ("/top_ex".equals(command)) {
-            List<Operation> allExpenses = userData.getAllExpenses();
-            if (allExpenses.isEmpty()) {
-                return "— Расходов пока нет";
-            }
-
-            allExpenses.sort((a, b) -> Double.compare(b.getAmount(), a.getAmount()));
-
-            StringBuilder top_three_ex = new StringBuilder("📉 Топ-3 самых больших расходов:\n");
-            int count = Math.min(3, allExpenses.size());
-            for (int i = 0; i < count; i++) {
-                Operation expense = allExpenses.get(i);
-                top_three_ex.append(String.format("— «%s» на сумму %,.2f (категория: %s)\n",
-                        expense.getName(), expense.getAmount(), expense.getCategory()));
-            }
-
-            return top_three_ex.toString().trim();
-        }
-
-        if ("/top_in".equals(command)) {
-            List<Operation> allIncomes = userData.getAllIncomes();
-            if (allIncomes.isEmpty()) {
-                return "— Доходов пока нет";
+                limit = -1;
             }
-
-            allIncomes.sort((a, b) -> Double.compare(b.getAmount(), a.getAmount()));
-
-            StringBuilder sb = new StringBuilder("📈 Топ-3 самых больших доходов:\n");
-            int count = Math.min(3, allIncomes.size());
-            for (int i = 0; i < count; i++) {
-                Operation income = allIncomes.get(i);
-                sb.append(String.format("— «%s» на сумму %,.2f (категория: %s)\n",
-                        income.getName(), income.getAmount(), income.getCategory()));
+            if (limit < 1 || limit > MAX_TOP_SIZE) {
+                return "Некорректное количество: " + countParameter +
+                        ". Укажите число от 1 до " + MAX_TOP_SIZE + ".";
             }
-
-            return sb.toString().trim();
         }
 
-        if ("/sum_income".equals(command)) {
-            List<Operation> incomes = userData.getAllIncomes();
-            double incomeSum = incomes.stream()
-                    .mapToDouble(Operation::getAmount)
-                    .sum();
-
-            return "💰 Сумма доходов: " + String.format("%,.2f", incomeSum);
+        List<Operation> top = incomes
+                ? userData.getLargestIncomes(limit, category)
+                : userData.getLargestExpenses(limit, category);
+        String kind = incomes ? "доходов" : "расходов";
+        if (top.isEmpty()) {
+            String empty = incomes ? "— Доходов" : "— Расходов";
+            return category == null
+                    ? empty + " пока нет"
+                    : empty + " в категории «" + category + "» пока нет";
         }
 
-        if ("/sum_expense".equals(command)) {
-            List<Operation> expenses = userData.getAllExpenses();
-            double expenseSum = expenses.stream()
-                    .mapToDouble(Operation::getAmount)
-                    .sum();
-
-            return "💸 Сумма расходов: " + String.format("%,.2f", expenseSum);
+        StringBuilder sb = new StringBuilder(incomes ? "📈 Топ-" : "📉 Топ-")
+                .append(limit).append(" самых больших ").append(kind);
+        if (category != null) {
+            sb.append(" (категория: ").append(category).append(")");
         }
-
-        if ("/count_ops".equals(command)) {
-            List<Operation> incomes = userData.getAllIncomes();
-            List<Operation> expenses = userData.getAllExpenses();
-
-            int incomeCount = incomes.size();
-            int expenseCount = expenses.size();
-            int totalOps = incomeCount + expenseCount;
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("📊 Количество операций:\n")
-                    .append("➕ Доходы: ").append(incomeCount).append("\n")
-                    .append("➖ Расходы: ").append(expenseCount).append("\n")
-                    .append(" Всего операций: ").append(totalOps);
-            return sb.toString().trim();
+        sb.append(":\n");
+        for (Operation operation : top) {
+            sb.append("— «").append(operation.getName()).append("» на сумму ");
+            MoneyFormat.append(sb, operation.getAmount())
+                    .append(" (категория: ").append(operation.getCategory()).append(")\n");
         }
-
-        return "Неизвестная команда.\nВведите /help для просмотра доступных команд.";
+        return sb.toString().trim();
     }
 }
@@ -0,0 +1,69 @@
+package com.task1.javabot1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP-сервер на localhost, который отдает показатели бота в формате Prometheus по пути /metrics.
+ * <p>
+ * Сервер слушает только локальный адрес: показатели предназначены для агента
+ * мониторинга на той же машине, а не для внешних запросов.
+ */
+public class MetricsServer implements AutoCloseable {
+    /**
+     * Порт по умолчанию (BOT_METRICS_PORT)
+     */
+    public static final int DEFAULT_PORT = 9464;
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final BotMetrics metrics;
+    private final HttpServer server;
+
+    /**
+     * Запускает сервер на локальном адресе.
+     *
+     * @param port порт или 0, чтобы выбрать свободный
+     * @param metrics показатели для вывода
+     * @throws IOException если порт занят
+     */
+    public MetricsServer(int port, BotMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Возвращает порт, на котором слушает сервер
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.writePrometheus(new StringBuilder()).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
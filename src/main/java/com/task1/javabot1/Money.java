@@ -0,0 +1,144 @@
+package com.task1.javabot1;
+
+/**
+ * Денежная сумма в копейках.
+ * Сложение и сравнение сумм выполняются точно, без округления и упаковки в Double.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final int MINOR_DIGITS = 2;
+    static final long MINOR_PER_MAJOR = 100;
+    /**
+     * Наибольшая по модулю сумма, которую принимает {@link #parse}: миллиард рублей
+     */
+    static final long MAX_PARSED_MINOR_UNITS = 1_000_000_000L * MINOR_PER_MAJOR;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Создает сумму из количества копеек
+     */
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Разбирает сумму вида 1500, -20 или 99.9 (не больше двух знаков после точки).
+     * Суммы больше миллиарда по модулю не принимаются, чтобы итоги операций
+     * гарантированно помещались в long.
+     *
+     * @throws NumberFormatException если строка не является суммой или сумма слишком большая
+     */
+    public static Money parse(String text) {
+        int length = text.length();
+        int index = 0;
+        boolean negative = false;
+        if (index < length && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+            negative = text.charAt(index) == '-';
+            index++;
+        }
+
+        long major = 0;
+        int majorDigits = 0;
+        try {
+            for (; index < length && text.charAt(index) != '.'; index++) {
+                major = Math.addExact(Math.multiplyExact(major, 10), digit(text, index));
+                majorDigits++;
+            }
+
+            long minor = 0;
+            int minorDigits = 0;
+            if (index < length) {
+                for (index++; index < length; index++) {
+                    if (++minorDigits > MINOR_DIGITS) {
+                        throw new NumberFormatException("Больше двух знаков после точки: " + text);
+                    }
+                    minor = minor * 10 + digit(text, index);
+                }
+                if (minorDigits == 0) {
+                    throw new NumberFormatException("Нет цифр после точки: " + text);
+                }
+                for (; minorDigits < MINOR_DIGITS; minorDigits++) {
+                    minor *= 10;
+                }
+            }
+            if (majorDigits == 0 && minor == 0 && minorDigits == 0) {
+                throw new NumberFormatException("Нет цифр: " + text);
+            }
+
+            long units = Math.addExact(Math.multiplyExact(major, MINOR_PER_MAJOR), minor);
+            if (units > MAX_PARSED_MINOR_UNITS) {
+                throw new ArithmeticException();
+            }
+            return ofMinorUnits(negative ? -units : units);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Слишком большая сумма: " + text);
+        }
+    }
+
+    private static int digit(String text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Некорректная сумма: " + text);
+        }
+        return c - '0';
+    }
+
+    /**
+     * Возвращает количество копеек
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * Возвращает сумму двух сумм
+     */
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Возвращает разность двух сумм
+     */
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    /**
+     * Возвращает сумму в рублях для форматированного вывода
+     */
+    public double doubleValue() {
+        return minorUnits / (double) MINOR_PER_MAJOR;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * Возвращает сумму с двумя знаками после точки, например 1500.00
+     */
+    @Override
+    public String toString() {
+        long absolute = Math.abs(minorUnits);
+        long minor = absolute % MINOR_PER_MAJOR;
+        return (minorUnits < 0 ? "-" : "") + absolute / MINOR_PER_MAJOR + (minor < 10 ? ".0" : ".") + minor;
+    }
+}
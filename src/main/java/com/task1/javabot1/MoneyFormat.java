@@ -0,0 +1,129 @@
+package com.task1.javabot1;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Вывод денежных сумм с разделением на разряды, как String.format("%,.2f", сумма).
+ * <p>
+ * Сумма выводится прямо из копеек в StringBuilder, без разбора строки формата
+ * и создания Formatter. Разделители разрядов и дробной части, размер группы и цифры
+ * берутся из той же локали и теми же правилами, что и в java.util.Formatter,
+ * поэтому результат совпадает посимвольно.
+ */
+public final class MoneyFormat {
+    /**
+     * Больше 15 значащих цифр double может хранить неточно — такие суммы выводит Formatter
+     */
+    private static final long MAX_EXACT_MINOR_UNITS = 999_999_999_999_999L;
+    private static final int MAX_DIGITS = 20;
+
+    /**
+     * Символы локали, как их выбирает Formatter для %,.2f
+     */
+    private static final class Symbols {
+        private final Locale locale;
+        private final char zero;
+        private final char decimalSeparator;
+        /** '\0', если локаль не разделяет разряды */
+        private final char groupingSeparator;
+        private final int groupingSize;
+
+        private Symbols(Locale locale) {
+            this.locale = locale;
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            this.zero = symbols.getZeroDigit();
+            this.decimalSeparator = symbols.getDecimalSeparator();
+            if (locale.equals(Locale.US)) {
+                this.groupingSeparator = ',';
+                this.groupingSize = 3;
+            } else {
+                NumberFormat numberFormat = NumberFormat.getNumberInstance(locale);
+                DecimalFormat decimalFormat = numberFormat instanceof DecimalFormat format
+                        ? format
+                        : new DecimalFormat("#,##0.###", symbols);
+                this.groupingSize = decimalFormat.getGroupingSize();
+                this.groupingSeparator = decimalFormat.isGroupingUsed() && groupingSize > 0
+                        ? symbols.getGroupingSeparator()
+                        : '\0';
+            }
+        }
+    }
+
+    private static volatile Symbols cached;
+
+    private MoneyFormat() {
+    }
+
+    /**
+     * Выводит сумму в локали по умолчанию, например 1 234,50
+     *
+     * @param amount сумма
+     * @return строка с суммой
+     */
+    public static String format(Money amount) {
+        return append(new StringBuilder(24), amount).toString();
+    }
+
+    /**
+     * Дописывает сумму в локали по умолчанию.
+     *
+     * @param sb куда дописать
+     * @param amount сумма
+     * @return тот же StringBuilder
+     */
+    public static StringBuilder append(StringBuilder sb, Money amount) {
+        return append(sb, amount, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Дописывает сумму в заданной локали.
+     *
+     * @param sb куда дописать
+     * @param amount сумма
+     * @param locale локаль разделителей и цифр
+     * @return тот же StringBuilder
+     */
+    public static StringBuilder append(StringBuilder sb, Money amount, Locale locale) {
+        long minorUnits = amount.getMinorUnits();
+        if (minorUnits > MAX_EXACT_MINOR_UNITS || minorUnits < -MAX_EXACT_MINOR_UNITS) {
+            return sb.append(String.format(locale, "%,.2f", amount.doubleValue()));
+        }
+
+        Symbols symbols = symbols(locale);
+        if (minorUnits < 0) {
+            sb.append('-');
+            minorUnits = -minorUnits;
+        }
+        long major = minorUnits / Money.MINOR_PER_MAJOR;
+        int minor = (int) (minorUnits % Money.MINOR_PER_MAJOR);
+
+        char[] digits = new char[MAX_DIGITS];
+        int length = 0;
+        do {
+            digits[length++] = (char) (symbols.zero + (int) (major % 10));
+            major /= 10;
+        } while (major > 0);
+        for (int i = length - 1; i >= 0; i--) {
+            sb.append(digits[i]);
+            if (i > 0 && symbols.groupingSeparator != '\0' && i % symbols.groupingSize == 0) {
+                sb.append(symbols.groupingSeparator);
+            }
+        }
+
+        return sb.append(symbols.decimalSeparator)
+                .append((char) (symbols.zero + minor / 10))
+                .append((char) (symbols.zero + minor % 10));
+    }
+
+    private static Symbols symbols(Locale locale) {
+        Symbols symbols = cached;
+        if (symbols == null || !symbols.locale.equals(locale)) {
+            symbols = new Symbols(locale);
+            cached = symbols;
+        }
+        return symbols;
+    }
+}
@@ -1,82 +1,234 @@
 package com.task1.javabot1;
 
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * Основной класс Telegram-бота.
  * Обрабатывает входящие сообщения и отправляет ответы пользователям.
  * Использует Long Polling для получения обновлений от Telegram API.
+ * Обновления обрабатываются в почтовых ящиках пользователей на виртуальных потоках:
+ * разные пользователи — параллельно, команды одного пользователя — строго по порядку.
+ * Ответы уходят через {@link SendQueue}, которая соблюдает ограничения частоты Telegram.
  */
 public class MyTelegramBot extends TelegramLongPollingBot {
-    private final MessageHandler messageHandler = new MessageHandler();
+    private static final String ERROR_REPLY = "Не удалось выполнить команду, попробуйте еще раз позже.";
+
+    private final MessageHandler messageHandler;
     private final Keyboard keyboard = new Keyboard();
+    private final TelegramHttpSender sender;
+    private final SendQueue sendQueue;
+    private final BotMetrics metrics = BotMetrics.global();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Создает бота, который хранит данные пользователей только в памяти.
+     */
+    public MyTelegramBot() {
+        this(new MessageHandler());
+    }
+
+    /**
+     * Создает бота с заданным обработчиком сообщений; обработчик закрывается вместе с ботом.
+     * Ответы отправляются через пул из BOT_MAX_CONNECTIONS соединений (по умолчанию 32).
+     *
+     * @param messageHandler обработчик сообщений пользователей
+     */
+    public MyTelegramBot(MessageHandler messageHandler) {
+        this(messageHandler, defaultOptions(), System.getenv("TELEGRAM_BOT_TOKEN"),
+                TelegramHttpSender.maxConnectionsFromEnv(),
+                sender -> new SendQueue(sender, sender.getMaxConnections()));
+    }
+
+    /**
+     * Создает бота с заданными настройками, токеном и очередью отправки,
+     * например для нагрузочного теста с локальным сервером вместо Telegram.
+     *
+     * @param messageHandler обработчик сообщений пользователей
+     * @param options настройки подключения к Telegram API
+     * @param botToken токен бота
+     * @param maxConnections сколько соединений с Telegram API держать для отправки ответов
+     * @param sendQueues создает очередь отправки поверх пула соединений
+     */
+    MyTelegramBot(MessageHandler messageHandler, DefaultBotOptions options, String botToken,
+                  int maxConnections, Function<TelegramHttpSender, SendQueue> sendQueues) {
+        super(options, botToken);
+        this.messageHandler = messageHandler;
+        this.sender = new TelegramHttpSender(options.getBaseUrl(), botToken, maxConnections);
+        this.sendQueue = sendQueues.apply(sender);
+    }
 
+    private static DefaultBotOptions defaultOptions() {
+        DefaultBotOptions options = new DefaultBotOptions();
+        String apiUrl = System.getenv("BOT_API_URL");
+        if (apiUrl != null) {
+            options.setBaseUrl(apiUrl);
+        }
+        return options;
+    }
+
+    /**
+     * Передает обновление в почтовый ящик его пользователя и сразу возвращается,
+     * чтобы поток получения обновлений не ждал обработки и ответов Telegram.
+     * Ответ отправляется в очереди пользователя, поэтому ответы идут в порядке команд.
+     * Если команда завершилась ошибкой, пользователь получает общий ответ об ошибке.
+     * Тексты кнопок распознает {@link MessageHandler} по реестру команд.
+     * Время приема по типу обновления записывается в {@link BotMetrics}.
+     */
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText()) {
-            String userInput = mapButtonToCommand(update.getMessage().getText());
-            String userId = update.getMessage().getFrom().getId().toString();
-            String chatId = update.getMessage().getChatId().toString();
+        long started = System.nanoTime();
+        String type = "other";
+        try {
+            if (update.hasMessage() && update.getMessage().hasText()) {
+                type = "message";
+                String userInput = update.getMessage().getText();
+                String userId = update.getMessage().getFrom().getId().toString();
+                String chatId = update.getMessage().getChatId().toString();
 
-            String response = messageHandler.processUserInput(userInput,userId);
-            sendMessage(chatId,response);
+                messageHandler.submit(userInput, userId)
+                        .thenAccept(reply -> sendMessage(chatId, reply))
+                        .exceptionally(error -> {
+                            logFailure(chatId, error);
+                            sendMessage(chatId, new Reply(ERROR_REPLY));
+                            return null;
+                        });
+            } else if (update.hasCallbackQuery()) {
+                type = "callback_query";
+                onPageRequested(update.getCallbackQuery());
+            }
+        } catch (RuntimeException e) {
+            metrics.recordError(BotMetrics.Stage.RECEIVE, type, System.nanoTime() - started);
+            throw e;
         }
+        metrics.record(BotMetrics.Stage.RECEIVE, type, System.nanoTime() - started);
     }
-    
+
     /**
-     * Преобразует текст кнопки в соответствующую команду бота.
-     * Если текст не совпадает ни с одной кнопкой — возвращает его без изменений.
+     * Обрабатывает нажатие кнопки листания: заменяет текст сообщения нужной страницей списка.
+     * Принимаются только команды списков, остальные данные кнопок игнорируются.
+     * Если команда завершилась ошибкой, текст ошибки показывается во всплывающем уведомлении.
      *
-     * @param input текст, пришедший от пользователя
-     * @return строка с командой вида /command или исходный текст
+     * @param query нажатие кнопки под сообщением
      */
-    private String mapButtonToCommand(String input) {
-        return switch (input) {
-            case "Список доходов" -> "/income";
-            case "Список расходов" -> "/expense";
-            case "Баланс" -> "/balance";
-            case "Статистика" -> "/statistic";
-            case "Топ доходов" -> "/top_in";
-            case "Топ расходов" -> "/top_ex";
-            case "Сумма доходов" -> "/sum_income";
-            case "Сумма расходов" -> "/sum_expense";
-            case "Количество операций" -> "/count_ops";
-            case "Помощь" -> "/help";
-            default -> input;
-        };
+    private void onPageRequested(CallbackQuery query) {
+        String data = query.getData();
+        if (data == null || query.getMessage() == null
+                || !(data.startsWith("/income ") || data.startsWith("/expense "))) {
+            answerCallback(query);
+            return;
+        }
+
+        String userId = query.getFrom().getId().toString();
+        messageHandler.submit(data, userId).thenAccept(reply -> {
+            EditMessageText message = new EditMessageText();
+            message.setChatId(query.getMessage().getChatId().toString());
+            message.setMessageId(query.getMessage().getMessageId());
+            message.setText(reply.getText());
+            if (reply.isPaged()) {
+                message.setReplyMarkup(keyboard.pagingKeyboard(reply));
+            }
+            sendQueue.enqueue(message.getChatId(), message);
+            answerCallback(query);
+        }).exceptionally(error -> {
+            logFailure(query.getMessage().getChatId().toString(), error);
+            answerCallback(query, ERROR_REPLY);
+            return null;
+        });
     }
+
+    /**
+     * Сообщает Telegram, что нажатие кнопки обработано.
+     *
+     * @param query нажатие кнопки под сообщением
+     */
+    private void answerCallback(CallbackQuery query) {
+        answerCallback(query, null);
+    }
+
+    /**
+     * Сообщает Telegram, что нажатие кнопки обработано, и показывает уведомление.
+     *
+     * @param query нажатие кнопки под сообщением
+     * @param text текст уведомления или null, если уведомление не нужно
+     */
+    private void answerCallback(CallbackQuery query, String text) {
+        AnswerCallbackQuery answer = new AnswerCallbackQuery();
+        answer.setCallbackQueryId(query.getId());
+        answer.setText(text);
+        String chatId = query.getMessage() != null
+                ? query.getMessage().getChatId().toString()
+                : query.getFrom().getId().toString();
+        sendQueue.enqueue(chatId, answer);
+    }
+
     /**
      * Создание сообщения от бота.
      *
+     * Постраничные списки отправляются с кнопками листания.
+     *
      * @param chatId ID чата.
-     * @param text обработанный ответ бота.
+     * @param reply обработанный ответ бота.
      */
 
-    private void sendMessage(String chatId, String text){
+    private void sendMessage(String chatId, Reply reply){
         SendMessage message = new SendMessage();
         message.setChatId(chatId);
-        message.setText(text);
-        message.setReplyMarkup(keyboard.mainKeyboard());
+        message.setText(reply.getText());
+        if (reply.isPaged()) {
+            message.setReplyMarkup(keyboard.pagingKeyboard(reply));
+        } else {
+            message.setReplyMarkup(keyboard.mainKeyboard());
+        }
 
-        try{
-            execute(message);
-        }catch(TelegramApiException e){
+        sendQueue.enqueue(chatId, message);
+    }
 
-            e.printStackTrace();
-        }
+    /**
+     * Записывает в журнал ошибку, с которой завершилась команда или отправка ответа на нее.
+     *
+     * @param chatId ID чата.
+     * @param error ошибка из цепочки обработки
+     */
+    private void logFailure(String chatId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        BotLog.global().error("reply_failed", "Команда в чате " + chatId + " не выполнена", cause);
     }
 
+    /**
+     * Дожидается выполнения принятых команд и отправки ответов из очереди перед остановкой бота.
+     * Вызывается сессией Long Polling при ее остановке; повторный вызов ничего не делает.
+     */
     @Override
-    public String getBotUsername() {
-        return "java_mih_grib_bot";
+    public void onClosing() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            messageHandler.close();
+        } catch (IOException e) {
+            BotLog.global().error("shutdown_failed", null, e);
+        }
+        sendQueue.close();
+        sender.close();
+        super.onClosing();
     }
 
     @Override
-    public String getBotToken() {
-        return System.getenv("TELEGRAM_BOT_TOKEN");
+    public String getBotUsername() {
+        return "java_mih_grib_bot";
     }
 
 }
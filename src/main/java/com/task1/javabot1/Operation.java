@@ -1,20 +1,19 @@
 package com.task1.javabot1;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 /**
  * Класс для представления финансовой операции
  */
 public class Operation {
     private final String name;
-    private final Double amount;
+    private final Money amount;
     private final String category;
     private final LocalDate date;
 
     /**
     * Конструктор класса
     */
-    public Operation(String name, Double amount, String category, LocalDate date) {
+    public Operation(String name, Money amount, String category, LocalDate date) {
         this.name = name != null ? name.trim() : "";
         this.amount = amount;
         this.category = category != null ? category.trim() : "";
@@ -24,7 +23,7 @@ public class Operation {
     /**
      * Конструктор класса с текущим временем (для обратной совместимости)
      */
-    public Operation(String name, Double amount, String category) {
+    public Operation(String name, Money amount, String category) {
         this(name, amount, category, LocalDate.now());
     }
 
@@ -36,7 +35,7 @@ public class Operation {
     /**
     * Возвращаем сумму операции
     */
-    public Double getAmount() { return amount; }
+    public Money getAmount() { return amount; }
     
     /**
     * Возвращаем категорию операции
@@ -52,22 +51,23 @@ public class Operation {
      * Форматированная дата для вывода
      */
     public String getFormattedDate() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-        return date.format(formatter);
+        return DateCodec.format(date);
     }
 
     @Override
     public String toString() {
-        return String.format("Операция: %s, Сумма: %,.2f, Категория: %s Дата: %s",
-                name, amount, category, getFormattedDate());
+        StringBuilder sb = new StringBuilder("Операция: ").append(name).append(", Сумма: ");
+        return MoneyFormat.append(sb, amount)
+                .append(", Категория: ").append(category)
+                .append(" Дата: ").append(getFormattedDate())
+                .toString();
     }
 
     /**
      * Проверяет, соответствует ли операция названию и сумме
      */
-    public boolean matches(String name, Double amount) {
-        return this.name.equals(name.trim()) &&
-                Math.abs(this.amount - amount) < 0.01;
+    public boolean matches(String name, Money amount) {
+        return this.name.equals(name.trim()) && this.amount.equals(amount);
     }
 }
 
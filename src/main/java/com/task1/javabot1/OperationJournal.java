@@ -0,0 +1,505 @@
+package com.task1.javabot1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений данных пользователей, в который записи только дописываются.
+ * Каждое изменение сначала кладётся в буфер в памяти, а фоновый поток
+ * пачками сбрасывает буфер в файл и вызывает fsync.
+ * <p>
+ * Журнал разбит на сегменты operations.N.journal. После снимка состояния
+ * (см. {@link SnapshotStore}) начинается новый сегмент, а старые удаляются,
+ * поэтому при запуске проигрывается только хвост журнала после последнего снимка.
+ */
+public class OperationJournal implements AutoCloseable {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    private static final String SEGMENT_PREFIX = "operations.";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int MAGIC = 0x4A424A31;
+    private static final short VERSION = 3;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private static final byte ADD_INCOME = 1;
+    private static final byte ADD_EXPENSE = 2;
+    private static final byte DELETE_INCOME = 3;
+    private static final byte DELETE_EXPENSE = 4;
+    private static final byte ADD_INCOME_CATEGORY = 5;
+    private static final byte DELETE_INCOME_CATEGORY = 6;
+    private static final byte ADD_EXPENSE_CATEGORY = 7;
+    private static final byte DELETE_EXPENSE_CATEGORY = 8;
+
+    private final Path directory;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+    private FileChannel channel;
+    private long generation;
+    private long writePosition;
+    private long segmentRecords;
+    private volatile IOException failure;
+    private boolean replayed;
+    private boolean closed;
+
+    /**
+     * Открывает журнал в каталоге и запускает фоновый сброс на диск.
+     * Перед первой записью журнал нужно проиграть методом {@link #replay(long, Function)}.
+     *
+     * @param directory каталог с сегментами журнала
+     * @param flushIntervalMillis период сброса буфера на диск
+     * @return открытый журнал
+     */
+    public static OperationJournal open(Path directory, long flushIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        return new OperationJournal(directory, flushIntervalMillis);
+    }
+
+    private OperationJournal(Path directory, long flushIntervalMillis) {
+        this.directory = directory;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Проигрывает сегменты журнала, начиная с указанного, и восстанавливает данные пользователей.
+     * Более старые сегменты уже учтены в снимке и удаляются.
+     * Недописанный хвост сегмента (например, после аварийного завершения) отрезается,
+     * а его позиция и размер записываются в {@link BotLog}.
+     * Новые записи пишутся в свежий сегмент.
+     *
+     * @param fromGeneration номер первого сегмента, которого нет в снимке
+     * @param users возвращает данные пользователя по его идентификатору
+     */
+    public void replay(long fromGeneration, Function<String, UserData> users) throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (replayed) {
+                    throw new IllegalStateException("Журнал операций уже проигран");
+                }
+
+                long lastGeneration = fromGeneration - 1;
+                for (long segment : listSegments(directory)) {
+                    Path file = segmentFile(directory, segment);
+                    if (segment < fromGeneration) {
+                        Files.delete(file);
+                        continue;
+                    }
+                    try (FileChannel segmentChannel = FileChannel.open(file,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                        replaySegment(segmentChannel, file, users);
+                    }
+                    lastGeneration = segment;
+                }
+
+                openSegment(lastGeneration + 1);
+                replayed = true;
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает текущий сегмент на диск и начинает новый.
+     *
+     * @return номер нового сегмента: все более ранние сегменты можно заменить снимком
+     */
+    public long rotate() throws IOException {
+        synchronized (flushLock) {
+            flush();
+            synchronized (this) {
+                if (!replayed) {
+                    throw new IllegalStateException("Журнал операций ещё не проигран");
+                }
+                channel.close();
+                openSegment(generation + 1);
+                return generation;
+            }
+        }
+    }
+
+    /**
+     * Удаляет сегменты, которые уже целиком учтены в снимке.
+     *
+     * @param generation номер первого сегмента, который нужно сохранить
+     */
+    public void deleteSegmentsBefore(long generation) throws IOException {
+        for (long segment : listSegments(directory)) {
+            if (segment < generation) {
+                Files.deleteIfExists(segmentFile(directory, segment));
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество записей, добавленных в текущий сегмент
+     */
+    public synchronized long getSegmentRecords() {
+        return segmentRecords;
+    }
+
+    /**
+     * Записывает добавление дохода
+     */
+    public void appendAddIncome(String userId, long version, Operation operation) {
+        append(ADD_INCOME, userId, version, operation.getName(), operation.getAmount(),
+                operation.getCategory(), operation.getDate());
+    }
+
+    /**
+     * Записывает добавление расхода
+     */
+    public void appendAddExpense(String userId, long version, Operation operation) {
+        append(ADD_EXPENSE, userId, version, operation.getName(), operation.getAmount(),
+                operation.getCategory(), operation.getDate());
+    }
+
+    /**
+     * Записывает удаление дохода
+     */
+    public void appendDeleteIncome(String userId, long version, String name, Money amount) {
+        append(DELETE_INCOME, userId, version, name, amount, "", null);
+    }
+
+    /**
+     * Записывает удаление расхода
+     */
+    public void appendDeleteExpense(String userId, long version, String name, Money amount) {
+        append(DELETE_EXPENSE, userId, version, name, amount, "", null);
+    }
+
+    /**
+     * Записывает добавление категории доходов
+     */
+    public void appendAddIncomeCategory(String userId, long version, String category) {
+        append(ADD_INCOME_CATEGORY, userId, version, "", Money.ZERO, category, null);
+    }
+
+    /**
+     * Записывает удаление категории доходов
+     */
+    public void appendDeleteIncomeCategory(String userId, long version, String category) {
+        append(DELETE_INCOME_CATEGORY, userId, version, "", Money.ZERO, category, null);
+    }
+
+    /**
+     * Записывает добавление категории расходов
+     */
+    public void appendAddExpenseCategory(String userId, long version, String category) {
+        append(ADD_EXPENSE_CATEGORY, userId, version, "", Money.ZERO, category, null);
+    }
+
+    /**
+     * Записывает удаление категории расходов
+     */
+    public void appendDeleteExpenseCategory(String userId, long version, String category) {
+        append(DELETE_EXPENSE_CATEGORY, userId, version, "", Money.ZERO, category, null);
+    }
+
+    /**
+     * Кодирует запись в буфер в памяти. На диск она попадёт при ближайшем сбросе.
+     */
+    private synchronized void append(byte type, String userId, long version, String name, Money amount,
+                                     String category, LocalDate date) {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал операций недоступен", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Журнал операций закрыт");
+        }
+        if (!replayed) {
+            throw new IllegalStateException("Журнал операций ещё не проигран");
+        }
+
+        byte[] userBytes = userId.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] categoryBytes = category.getBytes(StandardCharsets.UTF_8);
+        int payloadSize = 1 + Integer.BYTES * 3 + userBytes.length + nameBytes.length
+                + categoryBytes.length + Long.BYTES * 3;
+
+        ensureCapacity(RECORD_HEADER_SIZE + payloadSize);
+        int start = pending.position();
+        pending.putInt(payloadSize);
+        pending.putInt(0);
+        pending.put(type);
+        putBytes(pending, userBytes);
+        pending.putLong(version);
+        putBytes(pending, nameBytes);
+        putBytes(pending, categoryBytes);
+        pending.putLong(amount.getMinorUnits());
+        pending.putLong(date != null ? date.toEpochDay() : 0L);
+
+        crc.reset();
+        crc.update(pending.array(), start + RECORD_HEADER_SIZE, payloadSize);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        segmentRecords++;
+    }
+
+    private void ensureCapacity(int size) {
+        if (pending.remaining() >= size) {
+            return;
+        }
+        int capacity = pending.capacity();
+        while (capacity - pending.position() < size) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Сбрасывает накопленные записи на диск и дожидается fsync.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer filled = pending;
+                pending = flushing;
+                flushing = filled;
+            }
+
+            flushing.flip();
+            try {
+                while (flushing.hasRemaining()) {
+                    writePosition += channel.write(flushing, writePosition);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                flushing.clear();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            BotLog.global().error("journal_flush_failed", null, e);
+        }
+    }
+
+    /**
+     * Останавливает фоновый сброс и записывает на диск всё накопленное.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.shutdown();
+        synchronized (flushLock) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Создает новый сегмент с заголовком и делает его текущим
+     */
+    private void openSegment(long segment) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentFile(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        segmentChannel.write(header, 0);
+        segmentChannel.force(true);
+
+        channel = segmentChannel;
+        generation = segment;
+        writePosition = HEADER_SIZE;
+        segmentRecords = 0;
+    }
+
+    /**
+     * Читает записи сегмента по порядку и применяет их.
+     */
+    private static void replaySegment(FileChannel channel, Path file, Function<String, UserData> users)
+            throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Файл не является журналом операций");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия журнала: " + version);
+        }
+
+        long position = HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        ByteBuffer payload = ByteBuffer.allocate(4096);
+        CRC32 crc = new CRC32();
+
+        while (size - position >= RECORD_HEADER_SIZE) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, position);
+            recordHeader.flip();
+            int payloadSize = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (payloadSize <= 0 || payloadSize > MAX_RECORD_SIZE
+                    || size - position - RECORD_HEADER_SIZE < payloadSize) {
+                break;
+            }
+
+            if (payload.capacity() < payloadSize) {
+                payload = ByteBuffer.allocate(payloadSize);
+            }
+            payload.clear().limit(payloadSize);
+            readFully(channel, payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, payloadSize);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            payload.flip();
+            try {
+                apply(payload, users);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + payloadSize;
+        }
+
+        if (position < size) {
+            BotLog.global().log(BotLog.Level.WARN, "journal_truncated", "Сегмент " + file.getFileName()
+                    + ": отрезано " + (size - position) + " байт с позиции " + position);
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+
+    private static void apply(ByteBuffer payload, Function<String, UserData> users) {
+        byte type = payload.get();
+        if (type < ADD_INCOME || type > DELETE_EXPENSE_CATEGORY) {
+            throw new IllegalArgumentException("Неизвестный тип записи: " + type);
+        }
+        String userId = getString(payload);
+        long version = payload.getLong();
+        String name = getString(payload);
+        String category = getString(payload);
+        Money amount = Money.ofMinorUnits(payload.getLong());
+        long epochDay = payload.getLong();
+
+        UserData userData = users.apply(userId);
+        if (version <= userData.getVersion()) {
+            return;
+        }
+
+        switch (type) {
+            case ADD_INCOME -> userData.restoreIncome(
+                    new Operation(name, amount, category, LocalDate.ofEpochDay(epochDay)));
+            case ADD_EXPENSE -> userData.restoreExpense(
+                    new Operation(name, amount, category, LocalDate.ofEpochDay(epochDay)));
+            case DELETE_INCOME -> userData.restoreDeleteIncome(name, amount);
+            case DELETE_EXPENSE -> userData.restoreDeleteExpense(name, amount);
+            case ADD_INCOME_CATEGORY -> userData.restoreAddIncomeCategory(category);
+            case DELETE_INCOME_CATEGORY -> userData.restoreDeleteIncomeCategory(category);
+            case ADD_EXPENSE_CATEGORY -> userData.restoreAddExpenseCategory(category);
+            default -> userData.restoreDeleteExpenseCategory(category);
+        }
+        userData.restoreVersion(version);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Некорректная длина строки: " + length);
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    private static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Возвращает номера сегментов в каталоге по возрастанию
+     */
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(SEGMENT_PREFIX.length(),
+                        fileName.length() - SEGMENT_SUFFIX.length());
+                try {
+                    segments.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    // посторонний файл с похожим именем
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,775 @@
+package com.task1.javabot1;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Операции одного вида (доходы или расходы) одного пользователя.
+ * <p>
+ * Операции хранятся по столбцам в массивах примитивов: сумма в копейках,
+ * эпохальный день даты, номер категории и номер названия в словарях.
+ * Строка таблицы — одна операция, номера строк растут в порядке добавления.
+ * Удаление только помечает строку: в списке своего дня она остается, пока удаленных строк
+ * не станет больше половины, и тогда все они вычищаются за один проход.
+ * <p>
+ * Поверх столбцов номера строк разложены по дням в упорядоченном словаре, поэтому
+ * операция задним числом вставляется за O(log d), где d — количество дней с операциями.
+ * Порядок по убыванию суммы, общий и внутри каждой категории, поддерживается деревьями {@link AmountTrees}.
+ * Для удаления строки находятся по хэш-индексу из названия и суммы.
+ * Общая сумма и суммы по категориям пересчитываются при каждом изменении.
+ * Объекты {@link Operation} создаются только для вывода.
+ * <p>
+ * Для статистики за период суммы и количества операций по категориям копятся
+ * по дням в дереве Фенвика, где позиция — номер дня. Итоги за любой промежуток дат
+ * считаются по двум префиксам дерева, сколько бы операций в нем ни было.
+ */
+public class OperationLedger {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int DELETED = -1;
+    private static final int NONE = -1;
+    private static final int MIN_DELETED_TO_COMPACT = 64;
+
+    private final StringTable names = new StringTable();
+    private final StringTable categories = new StringTable();
+
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    /**
+     * Приоритеты строк в деревьях по сумме
+     */
+    private int[] priorities = new int[INITIAL_CAPACITY];
+    private int rowCount;
+    private int insertions;
+    private int deletedCount;
+
+    /**
+     * Строки по дням: ключ — эпохальный день. Дни без неудаленных операций убираются
+     */
+    private final NavigableMap<Integer, DayRows> rowsByDay = new TreeMap<>();
+    private int count;
+
+    /**
+     * Все операции по убыванию суммы: одно дерево с номером 0
+     */
+    private final AmountTrees byAmount = new AmountTrees();
+    /**
+     * Операции каждой категории по убыванию суммы: номер дерева — номер категории
+     */
+    private final AmountTrees categoriesByAmount = new AmountTrees();
+    private int[] categoryCounts = new int[0];
+    private long[] categoryTotals = new long[0];
+    private long total;
+
+    private final Map<MatchKey, RowList> rowsByMatch = new HashMap<>();
+
+    private final DayTotals dayTotals = new DayTotals();
+
+    /**
+     * Ключ поиска операций для удаления: номер названия и сумма в копейках.
+     * Одному ключу соответствуют все операции с таким названием и суммой, в любых категориях
+     */
+    private record MatchKey(int nameId, long amount) {
+    }
+
+    /**
+     * Номера строк по возрастанию, то есть в порядке добавления
+     */
+    private static final class RowList {
+        private int[] rows = new int[1];
+        private int size;
+
+        private void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    /**
+     * Строки одного дня в порядке добавления, включая удаленные до следующей вычистки
+     */
+    private static final class DayRows {
+        private final RowList rows = new RowList();
+        /**
+         * Количество неудаленных строк
+         */
+        private int count;
+    }
+
+    /**
+     * Семейство деревьев поиска строк по убыванию суммы, а при равной сумме — по номеру строки.
+     * <p>
+     * Это декартовы деревья (treap) в массивах: узел — сама строка, ее потомки хранятся
+     * в массивах left и right по номеру строки, приоритет — в столбце priorities.
+     * Вставка и удаление стоят O(log n) в среднем без сдвига массивов,
+     * а первые k строк по порядку обходятся за O(k + log n).
+     * Строка входит не больше чем в одно дерево семейства, поэтому деревья
+     * всех категорий делят одни массивы потомков и различаются только корнями.
+     */
+    private final class AmountTrees {
+        private int[] left = new int[INITIAL_CAPACITY];
+        private int[] right = new int[INITIAL_CAPACITY];
+        private int[] roots = {NONE};
+        private int[] stack = new int[INITIAL_CAPACITY];
+        private int splitLeft;
+        private int splitRight;
+
+        private void insert(int tree, int row) {
+            left[row] = NONE;
+            right[row] = NONE;
+            roots[tree] = insertBelow(roots[tree], row);
+        }
+
+        private int insertBelow(int node, int row) {
+            if (node == NONE) {
+                return row;
+            }
+            if (priorities[row] > priorities[node]) {
+                split(node, row);
+                left[row] = splitLeft;
+                right[row] = splitRight;
+                return row;
+            }
+            if (before(row, node)) {
+                left[node] = insertBelow(left[node], row);
+            } else {
+                right[node] = insertBelow(right[node], row);
+            }
+            return node;
+        }
+
+        /**
+         * Делит дерево на строки раньше row (splitLeft) и позже нее (splitRight)
+         */
+        private void split(int node, int row) {
+            if (node == NONE) {
+                splitLeft = NONE;
+                splitRight = NONE;
+            } else if (before(node, row)) {
+                split(right[node], row);
+                right[node] = splitLeft;
+                splitLeft = node;
+            } else {
+                split(left[node], row);
+                left[node] = splitRight;
+                splitRight = node;
+            }
+        }
+
+        /**
+         * Удаляет строку, которая есть в дереве
+         */
+        private void remove(int tree, int row) {
+            roots[tree] = removeBelow(roots[tree], row);
+        }
+
+        private int removeBelow(int node, int row) {
+            if (node == row) {
+                return merge(left[row], right[row]);
+            }
+            if (before(row, node)) {
+                left[node] = removeBelow(left[node], row);
+            } else {
+                right[node] = removeBelow(right[node], row);
+            }
+            return node;
+        }
+
+        /**
+         * Объединяет деревья, в которых все строки first идут раньше строк second
+         */
+        private int merge(int first, int second) {
+            if (first == NONE) {
+                return second;
+            }
+            if (second == NONE) {
+                return first;
+            }
+            if (priorities[first] > priorities[second]) {
+                right[first] = merge(right[first], second);
+                return first;
+            }
+            left[second] = merge(first, left[second]);
+            return second;
+        }
+
+        /**
+         * Добавляет в result первые limit операций дерева по порядку
+         */
+        private void collect(int tree, int limit, List<Operation> result) {
+            int depth = 0;
+            int node = roots[tree];
+            while ((node != NONE || depth > 0) && result.size() < limit) {
+                if (node != NONE) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = node;
+                    node = left[node];
+                } else {
+                    node = stack[--depth];
+                    result.add(toOperation(node));
+                    node = right[node];
+                }
+            }
+        }
+
+        /**
+         * Идет ли строка a раньше строки b: большая сумма раньше, при равной — меньший номер
+         */
+        private boolean before(int a, int b) {
+            return amounts[a] != amounts[b] ? amounts[a] > amounts[b] : a < b;
+        }
+
+        /**
+         * Переносит потомков и корни на новые номера строк после вычистки удаленных
+         */
+        private void renumber(int[] newRows, int oldRowCount) {
+            for (int row = 0; row < oldRowCount; row++) {
+                if (newRows[row] != NONE) {
+                    left[newRows[row]] = left[row] == NONE ? NONE : newRows[left[row]];
+                    right[newRows[row]] = right[row] == NONE ? NONE : newRows[right[row]];
+                }
+            }
+            for (int tree = 0; tree < roots.length; tree++) {
+                roots[tree] = roots[tree] == NONE ? NONE : newRows[roots[tree]];
+            }
+        }
+
+        private void ensureRowCapacity(int capacity) {
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+
+        private void ensureTreeCapacity(int capacity) {
+            if (capacity > roots.length) {
+                int oldCapacity = roots.length;
+                roots = Arrays.copyOf(roots, capacity);
+                Arrays.fill(roots, oldCapacity, capacity, NONE);
+            }
+        }
+    }
+
+    /**
+     * Суммы в копейках и количества операций по категориям по дням в дереве Фенвика.
+     * <p>
+     * Позиция в дереве — сам эпохальный день, сдвинутый в положительные числа, поэтому
+     * дерево сразу покрывает все дни, и день задним числом или новая категория обновляют
+     * узлы на месте за O(log D) без сдвигов и перестроек. Узлы хранятся разреженно:
+     * заводятся только те, через которые прошло изменение, а их массивы по категориям
+     * растут по мере надобности. Соседние дни делят верхние узлы, поэтому узлов обычно
+     * немногим больше, чем дней с операциями.
+     */
+    private static final class DayTotals {
+        /**
+         * Последняя позиция дерева: сдвинутый день Integer.MAX_VALUE
+         */
+        private static final long MAX_POSITION = 1L << 32;
+        private static final long FREE = 0;
+
+        /**
+         * Хэш-таблица с открытой адресацией: позиция узла и его номер в массивах sums и counts
+         */
+        private long[] positions = new long[INITIAL_CAPACITY];
+        private int[] nodes = new int[INITIAL_CAPACITY];
+        private long[][] sums = new long[INITIAL_CAPACITY][];
+        private int[][] counts = new int[INITIAL_CAPACITY][];
+        private int nodeCount;
+
+        /**
+         * Прибавляет к итогам категории за день сумму и количество, которые могут быть отрицательными
+         */
+        private void add(int day, int category, long cents, int count) {
+            for (long i = position(day); i <= MAX_POSITION; i += i & -i) {
+                int node = findOrCreate(i);
+                if (category >= sums[node].length) {
+                    sums[node] = Arrays.copyOf(sums[node], category + 1);
+                    counts[node] = Arrays.copyOf(counts[node], category + 1);
+                }
+                sums[node][category] += cents;
+                counts[node][category] += count;
+            }
+        }
+
+        /**
+         * Прибавляет к result и resultCounts итоги дней от from до to включительно
+         */
+        private void addTo(int from, int to, long[] result, int[] resultCounts) {
+            addPrefix(position(to), 1, result, resultCounts);
+            addPrefix(position(from) - 1, -1, result, resultCounts);
+        }
+
+        /**
+         * Прибавляет к result итоги позиций от 1 до end, умноженные на sign
+         */
+        private void addPrefix(long end, int sign, long[] result, int[] resultCounts) {
+            for (long i = end; i > 0; i -= i & -i) {
+                int node = find(i);
+                if (node == NONE) {
+                    continue;
+                }
+                long[] nodeSums = sums[node];
+                int[] nodeCounts = counts[node];
+                int categories = Math.min(nodeSums.length, result.length);
+                for (int category = 0; category < categories; category++) {
+                    result[category] += sign * nodeSums[category];
+                    resultCounts[category] += sign * nodeCounts[category];
+                }
+            }
+        }
+
+        private static long position(int day) {
+            return (long) day - Integer.MIN_VALUE + 1;
+        }
+
+        private int find(long position) {
+            int mask = positions.length - 1;
+            for (int slot = hash(position) & mask; positions[slot] != FREE; slot = (slot + 1) & mask) {
+                if (positions[slot] == position) {
+                    return nodes[slot];
+                }
+            }
+            return NONE;
+        }
+
+        private int findOrCreate(long position) {
+            int mask = positions.length - 1;
+            int slot = hash(position) & mask;
+            for (; positions[slot] != FREE; slot = (slot + 1) & mask) {
+                if (positions[slot] == position) {
+                    return nodes[slot];
+                }
+            }
+            if ((nodeCount + 1) * 2 > positions.length) {
+                grow();
+                return findOrCreate(position);
+            }
+            int node = nodeCount++;
+            positions[slot] = position;
+            nodes[slot] = node;
+            sums[node] = new long[0];
+            counts[node] = new int[0];
+            return node;
+        }
+
+        /**
+         * Удваивает хэш-таблицу и массивы узлов, чтобы таблица была заполнена не больше чем наполовину
+         */
+        private void grow() {
+            long[] oldPositions = positions;
+            int[] oldNodes = nodes;
+            positions = new long[oldPositions.length * 2];
+            nodes = new int[oldPositions.length * 2];
+            sums = Arrays.copyOf(sums, positions.length);
+            counts = Arrays.copyOf(counts, positions.length);
+            int mask = positions.length - 1;
+            for (int i = 0; i < oldPositions.length; i++) {
+                if (oldPositions[i] != FREE) {
+                    int slot = hash(oldPositions[i]) & mask;
+                    while (positions[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    positions[slot] = oldPositions[i];
+                    nodes[slot] = oldNodes[i];
+                }
+            }
+        }
+
+        private static int hash(long position) {
+            return mix((int) position ^ (int) (position >>> 32));
+        }
+    }
+
+    /**
+     * Добавляет операцию
+     *
+     * @throws ArithmeticException если общая сумма или сумма категории не помещается в long;
+     *                             тогда операция не добавляется
+     */
+    public void add(Operation operation) {
+        checkAdd(operation);
+        String categoryName = CategoryDictionary.global().canonical(operation.getCategory());
+        long cents = operation.getAmount().getMinorUnits();
+
+        int category = categories.intern(categoryName);
+        ensureCategoryCapacity(category + 1);
+        ensureRowCapacity(rowCount + 1);
+
+        int row = rowCount++;
+        amounts[row] = cents;
+        days[row] = (int) operation.getDate().toEpochDay();
+        categoryIds[row] = category;
+        nameIds[row] = names.intern(operation.getName());
+        priorities[row] = mix(insertions++);
+        rowsByMatch.computeIfAbsent(new MatchKey(nameIds[row], cents), k -> new RowList()).add(row);
+
+        DayRows day = rowsByDay.computeIfAbsent(days[row], key -> new DayRows());
+        day.rows.add(row);
+        day.count++;
+        byAmount.insert(0, row);
+        categoriesByAmount.insert(category, row);
+
+        count++;
+        categoryCounts[category]++;
+        categoryTotals[category] += cents;
+        total += cents;
+        dayTotals.add(days[row], category, cents, 1);
+    }
+
+    /**
+     * Проверяет, что операцию можно добавить, ничего не меняя.
+     * Если проверка прошла, {@link #add} этой операции не бросит исключение
+     *
+     * @throws ArithmeticException если общая сумма или сумма категории не поместится в long
+     */
+    public void checkAdd(Operation operation) {
+        long cents = operation.getAmount().getMinorUnits();
+        int existing = categories.find(CategoryDictionary.global().canonical(operation.getCategory()));
+        Math.addExact(total, cents);
+        Math.addExact(existing >= 0 ? categoryTotals[existing] : 0, cents);
+    }
+
+    /**
+     * Удаляет операции с указанными названием и суммой. Удаляется не одна операция,
+     * а все совпадения в одной категории — той, где раньше всех добавлена такая операция;
+     * совпадения в других категориях остаются. Так работает команда удаления бота,
+     * и так же удаление повторяется при чтении журнала.
+     * <p>
+     * Строки только помечаются удаленными; вычистка идет, когда их больше половины,
+     * поэтому ее стоимость распределяется по удалениям
+     *
+     * @return true, если что-то удалено
+     * @throws ArithmeticException если общая сумма или сумма категории не помещается в long;
+     *                             тогда ничего не удаляется
+     */
+    public boolean remove(String name, Money amount) {
+        MatchKey key = findMatchKey(name, amount);
+        if (key == null) {
+            return false;
+        }
+        RowList matches = rowsByMatch.get(key);
+        int category = categoryIds[matches.rows[0]];
+
+        int kept = 0;
+        for (int i = 0; i < matches.size; i++) {
+            int row = matches.rows[i];
+            if (categoryIds[row] == category) {
+                removeRow(row);
+            } else {
+                matches.rows[kept++] = row;
+            }
+        }
+        matches.size = kept;
+        if (kept == 0) {
+            rowsByMatch.remove(key);
+        }
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Проверяет, что {@link #remove} с такими аргументами что-то удалит, ничего не меняя
+     *
+     * @return true, если есть что удалить
+     * @throws ArithmeticException если общая сумма или сумма категории после удаления не поместится в long
+     */
+    public boolean canRemove(String name, Money amount) {
+        return findMatchKey(name, amount) != null;
+    }
+
+    /**
+     * Находит ключ операций для удаления и проверяет, что итоги после удаления поместятся в long
+     *
+     * @return ключ или null, если таких операций нет
+     */
+    private MatchKey findMatchKey(String name, Money amount) {
+        int nameId = names.find(name);
+        if (nameId < 0) {
+            return null;
+        }
+        MatchKey key = new MatchKey(nameId, amount.getMinorUnits());
+        RowList matches = rowsByMatch.get(key);
+        if (matches == null) {
+            return null;
+        }
+
+        int category = categoryIds[matches.rows[0]];
+        int removed = 0;
+        for (int i = 0; i < matches.size; i++) {
+            if (categoryIds[matches.rows[i]] == category) {
+                removed++;
+            }
+        }
+        // итоги проверяются до изменений, чтобы при переполнении ничего не удалить
+        long cents = Math.multiplyExact(amount.getMinorUnits(), removed);
+        Math.subtractExact(total, cents);
+        Math.subtractExact(categoryTotals[category], cents);
+        return key;
+    }
+
+    /**
+     * Убирает строку из деревьев по сумме и из итогов и помечает ее удаленной.
+     * В списке своего дня строка остается до вычистки, а день без операций убирается сразу
+     */
+    private void removeRow(int row) {
+        int category = categoryIds[row];
+        byAmount.remove(0, row);
+        categoriesByAmount.remove(category, row);
+        DayRows day = rowsByDay.get(days[row]);
+        if (--day.count == 0) {
+            rowsByDay.remove(days[row]);
+        }
+
+        count--;
+        categoryCounts[category]--;
+        categoryTotals[category] -= amounts[row];
+        total -= amounts[row];
+        dayTotals.add(days[row], category, -amounts[row], -1);
+
+        nameIds[row] = DELETED;
+        deletedCount++;
+    }
+
+    /**
+     * Вычищает удаленные строки, когда их становится больше половины.
+     * Оставшиеся строки сохраняют взаимный порядок, поэтому упорядоченные
+     * списки достаточно перенумеровать
+     */
+    private void compactIfSparse() {
+        if (deletedCount < MIN_DELETED_TO_COMPACT || deletedCount * 2 < rowCount) {
+            return;
+        }
+
+        int[] newRows = new int[rowCount];
+        int next = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (nameIds[row] == DELETED) {
+                newRows[row] = NONE;
+                continue;
+            }
+            newRows[row] = next;
+            amounts[next] = amounts[row];
+            days[next] = days[row];
+            categoryIds[next] = categoryIds[row];
+            nameIds[next] = nameIds[row];
+            priorities[next] = priorities[row];
+            next++;
+        }
+        int oldRowCount = rowCount;
+        rowCount = next;
+        deletedCount = 0;
+
+        for (DayRows day : rowsByDay.values()) {
+            RowList rows = day.rows;
+            int kept = 0;
+            for (int i = 0; i < rows.size; i++) {
+                int row = newRows[rows.rows[i]];
+                if (row != NONE) {
+                    rows.rows[kept++] = row;
+                }
+            }
+            rows.size = kept;
+        }
+        byAmount.renumber(newRows, oldRowCount);
+        categoriesByAmount.renumber(newRows, oldRowCount);
+        for (RowList matches : rowsByMatch.values()) {
+            renumber(matches.rows, matches.size, newRows);
+        }
+    }
+
+    /**
+     * Возвращает общую сумму операций
+     */
+    public Money getTotal() {
+        return Money.ofMinorUnits(total);
+    }
+
+    /**
+     * Возвращает количество операций
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Возвращает сумму операций категории
+     */
+    public Money getCategoryTotal(String category) {
+        int id = categories.find(category);
+        return id >= 0 ? Money.ofMinorUnits(categoryTotals[id]) : Money.ZERO;
+    }
+
+    /**
+     * Возвращает количество операций категории
+     */
+    public int getCategoryCount(String category) {
+        int id = categories.find(category);
+        return id >= 0 ? categoryCounts[id] : 0;
+    }
+
+    /**
+     * Возвращает все операции в порядке добавления
+     */
+    public List<Operation> getAll() {
+        List<Operation> all = new ArrayList<>(count);
+        for (int row = 0; row < rowCount; row++) {
+            if (nameIds[row] != DELETED) {
+                all.add(toOperation(row));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Возвращает операции с датой в промежутке от from до to включительно,
+     * упорядоченные по дате
+     */
+    public List<Operation> getBetween(LocalDate from, LocalDate to) {
+        List<Operation> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        for (DayRows day : rowsByDay.subMap(first, true, last, true).values()) {
+            for (int i = 0; i < day.rows.size; i++) {
+                int row = day.rows.rows[i];
+                if (nameIds[row] != DELETED) {
+                    result.add(toOperation(row));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает суммы операций по категориям за промежуток от from до to включительно.
+     * В результат попадают только категории, у которых есть операции в этом промежутке.
+     * Итоги считаются по префиксным суммам дней, не больше 32 узлов на категорию, без обхода операций
+     */
+    public Map<String, Money> getCategoryTotalsBetween(LocalDate from, LocalDate to) {
+        long[] sums = new long[categoryCounts.length];
+        int[] counts = new int[categoryCounts.length];
+        if (!from.isAfter(to)) {
+            dayTotals.addTo((int) from.toEpochDay(), (int) to.toEpochDay(), sums, counts);
+        }
+
+        Map<String, Money> result = new HashMap<>();
+        for (int category = 0; category < counts.length; category++) {
+            if (counts[category] > 0) {
+                result.put(categories.get(category), Money.ofMinorUnits(sums[category]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает до limit операций от новых к старым, пропустив первые offset.
+     * Операции одного дня идут в порядке добавления.
+     * Пропускаемые дни перешагиваются целиком по количеству их неудаленных операций,
+     * без обхода строк и создания объектов операций
+     */
+    public List<Operation> getNewestFirst(int offset, int limit) {
+        List<Operation> result = new ArrayList<>(Math.max(0, Math.min(limit, count - offset)));
+        int skip = offset;
+        for (DayRows day : rowsByDay.descendingMap().values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (skip >= day.count) {
+                skip -= day.count;
+                continue;
+            }
+            for (int i = 0; i < day.rows.size && result.size() < limit; i++) {
+                int row = day.rows.rows[i];
+                if (nameIds[row] == DELETED) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.add(toOperation(row));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает до limit самых больших операций.
+     * Операции с одинаковой суммой идут в порядке добавления
+     *
+     * @param limit сколько операций вернуть
+     * @param category категория или null, если нужны все операции
+     */
+    public List<Operation> getLargest(int limit, String category) {
+        if (category == null) {
+            List<Operation> result = new ArrayList<>(Math.min(limit, count));
+            byAmount.collect(0, limit, result);
+            return result;
+        }
+        int id = categories.find(category);
+        if (id < 0) {
+            return new ArrayList<>();
+        }
+        List<Operation> result = new ArrayList<>(Math.min(limit, categoryCounts[id]));
+        categoriesByAmount.collect(id, limit, result);
+        return result;
+    }
+
+    private Operation toOperation(int row) {
+        return new Operation(names.get(nameIds[row]), Money.ofMinorUnits(amounts[row]),
+                categories.get(categoryIds[row]), LocalDate.ofEpochDay(days[row]));
+    }
+
+    /**
+     * Перемешивает биты числа (финальный шаг MurmurHash3): так номер вставки
+     * превращается в приоритет узла дерева, а позиция дня — в хэш
+     */
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static void renumber(int[] rows, int size, int[] newRows) {
+        for (int i = 0; i < size; i++) {
+            rows[i] = newRows[rows[i]];
+        }
+    }
+
+    private void ensureRowCapacity(int capacity) {
+        if (capacity <= amounts.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, amounts.length * 2);
+        amounts = Arrays.copyOf(amounts, newCapacity);
+        days = Arrays.copyOf(days, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        nameIds = Arrays.copyOf(nameIds, newCapacity);
+        priorities = Arrays.copyOf(priorities, newCapacity);
+        byAmount.ensureRowCapacity(newCapacity);
+        categoriesByAmount.ensureRowCapacity(newCapacity);
+    }
+
+    private void ensureCategoryCapacity(int capacity) {
+        if (capacity <= categoryCounts.length) {
+            return;
+        }
+        categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+        categoryTotals = Arrays.copyOf(categoryTotals, capacity);
+        categoriesByAmount.ensureTreeCapacity(capacity);
+    }
+}
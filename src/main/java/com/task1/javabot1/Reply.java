@@ -0,0 +1,72 @@
+package com.task1.javabot1;
+
+/**
+ * Ответ бота на команду пользователя.
+ * Для постраничных списков дополнительно хранит команду списка,
+ * номер страницы и количество страниц, чтобы к ответу можно было добавить кнопки листания.
+ */
+public class Reply {
+    private final String text;
+    private final String pageCommand;
+    private final int page;
+    private final int pageCount;
+
+    /**
+     * Создает ответ без листания
+     *
+     * @param text текст ответа
+     */
+    public Reply(String text) {
+        this(text, null, 1, 1);
+    }
+
+    /**
+     * Создает ответ со страницей списка
+     *
+     * @param text текст ответа
+     * @param pageCommand команда списка, например /income
+     * @param page номер показанной страницы
+     * @param pageCount количество страниц
+     */
+    public Reply(String text, String pageCommand, int page, int pageCount) {
+        this.text = text;
+        this.pageCommand = pageCommand;
+        this.page = page;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Возвращает текст ответа
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Возвращает команду списка или null, если ответ не постраничный
+     */
+    public String getPageCommand() {
+        return pageCommand;
+    }
+
+    /**
+     * Возвращает номер показанной страницы
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * Возвращает количество страниц
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Проверяет, есть ли у ответа другие страницы
+     */
+    public boolean isPaged() {
+        return pageCommand != null && pageCount > 1;
+    }
+}
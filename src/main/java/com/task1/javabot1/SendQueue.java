@@ -0,0 +1,369 @@
+package com.task1.javabot1;
+
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь исходящих запросов к Telegram API с ограничением частоты.
+ * <p>
+ * Telegram разрешает боту около 30 сообщений в секунду всего и около одного в секунду
+ * в один чат, а при превышении отвечает ошибкой 429 с полем retry_after.
+ * Поэтому запросы сначала ставятся в очередь своего чата, а отправляются,
+ * только когда есть токен и в общем ведре, и в ведре чата.
+ * <p>
+ * В каждом чате одновременно выполняется не больше одного запроса, так что порядок
+ * сообщений сохраняется. Сами запросы идут на виртуальных потоках, а медленный чат
+ * не задерживает остальные: чаты обходятся по кругу.
+ * <p>
+ * После ошибки 429 чат ждет указанное Telegram время, после ошибок сети и 5xx —
+ * экспоненциально растущую паузу. Остальные ошибки 4xx не повторяются.
+ * Очереди ограничены: при переполнении новый запрос отбрасывается.
+ */
+public class SendQueue implements AutoCloseable {
+    /**
+     * Сколько запросов в секунду отправлять всего (BOT_SEND_RATE)
+     */
+    private static final double DEFAULT_MESSAGES_PER_SECOND = 30;
+    /**
+     * Сколько запросов в секунду отправлять в один чат (BOT_CHAT_SEND_RATE)
+     */
+    private static final double DEFAULT_CHAT_MESSAGES_PER_SECOND = 1;
+    /**
+     * Сколько запросов в один чат можно отправить подряд без паузы
+     */
+    private static final int CHAT_BURST = 3;
+    private static final int DEFAULT_MAX_QUEUED_PER_CHAT = 100;
+    private static final int DEFAULT_MAX_QUEUED = 10_000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Выполняет запрос к Telegram API
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(BotApiMethod<?> method) throws TelegramApiException;
+    }
+
+    /**
+     * Запрос, ожидающий отправки
+     */
+    private static final class Outgoing {
+        private final BotApiMethod<?> method;
+        private int attempts;
+
+        private Outgoing(BotApiMethod<?> method) {
+            this.method = method;
+        }
+    }
+
+    /**
+     * Очередь и ограничение частоты одного чата
+     */
+    private static final class Chat {
+        private final String id;
+        private final ArrayDeque<Outgoing> messages = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private boolean inFlight;
+        private long pausedUntil;
+        /**
+         * Запланирована ли проверка, что чат простаивает и его можно удалить
+         */
+        private boolean idleCheck;
+
+        private Chat(String id, TokenBucket bucket) {
+            this.id = id;
+            this.bucket = bucket;
+        }
+    }
+
+    private final Sender sender;
+    private final double chatMessagesPerSecond;
+    private final int maxQueuedPerChat;
+    private final int maxQueued;
+    private final TokenBucket global;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    /**
+     * Запросы сверх свободных соединений ждут здесь, а не в пуле соединений HTTP-клиента:
+     * там ожидание идет внутри synchronized и занимает поток-носитель виртуального потока.
+     * Когда такие ожидающие занимают все носители, потоки с соединениями не могут
+     * дочитать ответы и отправка останавливается навсегда. Поэтому разрешений столько же,
+     * сколько соединений в пуле клиента.
+     */
+    private final Semaphore connections;
+    private final BotMetrics metrics = BotMetrics.global();
+    private final BotLog log = BotLog.global();
+
+    private final Map<String, Chat> chats = new HashMap<>();
+    /**
+     * Чаты, у которых есть запросы и нет выполняющегося запроса, в порядке обхода
+     */
+    private final ArrayDeque<Chat> ready = new ArrayDeque<>();
+    /**
+     * Запросы в очередях и в процессе отправки
+     */
+    private int queued;
+    /**
+     * Когда сработает запланированный обход очереди, или Long.MAX_VALUE, если он не запланирован
+     */
+    private long pumpAt = Long.MAX_VALUE;
+
+    /**
+     * Создает очередь с ограничениями из переменных окружения BOT_SEND_RATE и BOT_CHAT_SEND_RATE.
+     *
+     * @param sender выполняет запросы
+     * @param maxConcurrentRequests сколько соединений у HTTP-клиента отправителя
+     */
+    public SendQueue(Sender sender, int maxConcurrentRequests) {
+        this(sender,
+                rateFromEnv("BOT_SEND_RATE", DEFAULT_MESSAGES_PER_SECOND),
+                rateFromEnv("BOT_CHAT_SEND_RATE", DEFAULT_CHAT_MESSAGES_PER_SECOND),
+                DEFAULT_MAX_QUEUED_PER_CHAT,
+                DEFAULT_MAX_QUEUED,
+                maxConcurrentRequests);
+    }
+
+    /**
+     * Создает очередь с заданными ограничениями.
+     *
+     * @param sender выполняет запросы
+     * @param messagesPerSecond сколько запросов в секунду отправлять всего
+     * @param chatMessagesPerSecond сколько запросов в секунду отправлять в один чат
+     * @param maxQueuedPerChat сколько запросов может ждать в одном чате
+     * @param maxQueued сколько запросов может ждать всего
+     * @param maxConcurrentRequests сколько запросов выполнять одновременно
+     */
+    SendQueue(Sender sender, double messagesPerSecond, double chatMessagesPerSecond,
+              int maxQueuedPerChat, int maxQueued, int maxConcurrentRequests) {
+        this.sender = sender;
+        this.connections = new Semaphore(maxConcurrentRequests);
+        this.chatMessagesPerSecond = chatMessagesPerSecond;
+        this.maxQueuedPerChat = maxQueuedPerChat;
+        this.maxQueued = maxQueued;
+        this.global = new TokenBucket((int) Math.max(1, messagesPerSecond), messagesPerSecond, System.nanoTime());
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "send-queue-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static double rateFromEnv(String name, double defaultRate) {
+        String value = System.getenv(name);
+        return value != null ? Double.parseDouble(value) : defaultRate;
+    }
+
+    /**
+     * Ставит запрос в очередь чата.
+     *
+     * @param chatId идентификатор чата
+     * @param method запрос к Telegram API
+     * @return false, если очередь переполнена и запрос отброшен
+     */
+    public synchronized boolean enqueue(String chatId, BotApiMethod<?> method) {
+        Chat chat = chats.get(chatId);
+        if (queued >= maxQueued || chat != null && chat.messages.size() >= maxQueuedPerChat) {
+            log.log(BotLog.Level.WARN, "send_dropped",
+                    "Очередь отправки переполнена, запрос в чат " + chatId + " отброшен");
+            return false;
+        }
+        if (chat == null) {
+            chat = new Chat(chatId, new TokenBucket(CHAT_BURST, chatMessagesPerSecond, System.nanoTime()));
+            chats.put(chatId, chat);
+        }
+        queued++;
+        chat.messages.addLast(new Outgoing(method));
+        if (!chat.inFlight && chat.messages.size() == 1) {
+            ready.addLast(chat);
+        }
+        pump();
+        return true;
+    }
+
+    /**
+     * Обходит готовые чаты по кругу и отправляет по одному запросу из каждого,
+     * для которого есть токены. Если токенов нет, планирует следующий обход на момент,
+     * когда они появятся.
+     */
+    private synchronized void pump() {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for (int i = ready.size(); i > 0; i--) {
+            Chat chat = ready.pollFirst();
+            long chatWait = Math.max(chat.pausedUntil - now, chat.bucket.nanosUntilAvailable(now));
+            if (chatWait > 0) {
+                ready.addLast(chat);
+                wait = Math.min(wait, chatWait);
+                continue;
+            }
+            long globalWait = global.nanosUntilAvailable(now);
+            if (globalWait > 0) {
+                ready.addFirst(chat);
+                wait = Math.min(wait, globalWait);
+                break;
+            }
+            chat.bucket.take(now);
+            global.take(now);
+            chat.inFlight = true;
+            Outgoing message = chat.messages.pollFirst();
+            requests.execute(() -> send(chat, message));
+        }
+        if (wait != Long.MAX_VALUE) {
+            schedulePump(now, wait);
+        }
+    }
+
+    private void schedulePump(long now, long wait) {
+        long at = now + wait;
+        if (at - pumpAt >= 0) {
+            return;
+        }
+        pumpAt = at;
+        timer.schedule(() -> {
+            synchronized (this) {
+                pumpAt = Long.MAX_VALUE;
+                pump();
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+    }
+
+    private void send(Chat chat, Outgoing message) {
+        Exception error = null;
+        connections.acquireUninterruptibly();
+        long started = System.nanoTime();
+        try {
+            sender.send(message.method);
+        } catch (TelegramApiException | RuntimeException e) {
+            error = e;
+        } finally {
+            connections.release();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (error == null) {
+            metrics.record(BotMetrics.Stage.SEND, message.method.getMethod(), elapsed);
+        } else {
+            metrics.recordError(BotMetrics.Stage.SEND, message.method.getMethod(), elapsed);
+        }
+        onSent(chat, message, error);
+    }
+
+    /**
+     * Освобождает чат после запроса. При ошибке возвращает запрос в начало очереди чата
+     * и ставит чат на паузу, либо отбрасывает запрос, если повторять его бесполезно.
+     */
+    private synchronized void onSent(Chat chat, Outgoing message, Exception error) {
+        chat.inFlight = false;
+        long now = System.nanoTime();
+        if (error == null) {
+            queued--;
+        } else {
+            long delay = retryDelayMillis(error, ++message.attempts);
+            if (delay < 0) {
+                log.error("send_failed", "Запрос в чат " + chat.id + " не отправлен после "
+                        + message.attempts + " попыток", error);
+                queued--;
+            } else {
+                chat.messages.addFirst(message);
+                chat.pausedUntil = now + TimeUnit.MILLISECONDS.toNanos(delay);
+            }
+        }
+
+        if (!chat.messages.isEmpty()) {
+            ready.addLast(chat);
+        } else {
+            removeIdle(chat, now);
+        }
+        if (queued == 0) {
+            notifyAll();
+        }
+        pump();
+    }
+
+    /**
+     * Удаляет чат, в котором нет запросов. Если ведро чата еще не наполнилось, удаление
+     * откладывается до момента, когда оно наполнится: новый запрос в этот чат создаст
+     * полное ведро, и раньше времени это позволило бы превысить частоту отправки в чат.
+     */
+    private void removeIdle(Chat chat, long now) {
+        long wait = chat.bucket.nanosUntilFull(now);
+        if (wait == 0) {
+            chats.remove(chat.id, chat);
+            return;
+        }
+        if (chat.idleCheck) {
+            return;
+        }
+        chat.idleCheck = true;
+        timer.schedule(() -> {
+            synchronized (this) {
+                chat.idleCheck = false;
+                if (!chat.inFlight && chat.messages.isEmpty()) {
+                    removeIdle(chat, System.nanoTime());
+                }
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Возвращает, сколько чатов сейчас хранит очередь
+     */
+    synchronized int chatCount() {
+        return chats.size();
+    }
+
+    /**
+     * Возвращает паузу перед повтором запроса в миллисекундах или -1, если повторять не нужно.
+     *
+     * @param error ошибка запроса
+     * @param attempts сколько попыток уже сделано
+     */
+    static long retryDelayMillis(Exception error, int attempts) {
+        if (attempts >= MAX_ATTEMPTS) {
+            return -1;
+        }
+        if (error instanceof TelegramApiRequestException request) {
+            if (request.getParameters() != null && request.getParameters().getRetryAfter() != null) {
+                return TimeUnit.SECONDS.toMillis(request.getParameters().getRetryAfter());
+            }
+            Integer code = request.getErrorCode();
+            if (code != null && code != 429 && code >= 400 && code < 500) {
+                return -1;
+            }
+        }
+        return Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempts - 1));
+    }
+
+    /**
+     * Дожидается отправки всех запросов, но не дольше 30 секунд, и останавливает потоки.
+     */
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+        synchronized (this) {
+            long remaining;
+            while (queued > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        timer.shutdownNow();
+        requests.shutdown();
+    }
+}
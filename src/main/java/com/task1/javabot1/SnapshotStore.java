@@ -0,0 +1,384 @@
+package com.task1.javabot1;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимки состояния всех пользователей в компактном двоичном виде.
+ * <p>
+ * Снимок snapshot.N.bin содержит всё, что было записано в сегменты журнала
+ * с номерами меньше N, и, возможно, часть записей сегмента N.
+ * Когда в текущем сегменте накапливается достаточно записей, журнал переключается
+ * на новый сегмент, а в фоне состояние каждого пользователя кодируется в его очереди
+ * и сразу дописывается в файл, после чего устаревшие сегменты удаляются.
+ * При запуске снимок читается через {@link FileChannel#map}, после чего
+ * проигрывается только хвост журнала.
+ */
+public class SnapshotStore implements AutoCloseable {
+    public static final long DEFAULT_SNAPSHOT_EVERY_RECORDS = 10_000;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot.";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x4A425331;
+    private static final short VERSION = 2;
+    private static final int TRAILER_SIZE = Integer.BYTES * 2;
+    /**
+     * Сколько пользователей снимать одновременно при записи снимка
+     */
+    private static final int CAPTURE_WINDOW = 64;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final OperationJournal journal;
+    private final long snapshotEveryRecords;
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param directory каталог со снимками и журналом
+     * @param journal журнал операций, сегменты которого заменяются снимками
+     * @param snapshotEveryRecords сколько записей журнала накапливать между снимками
+     */
+    public SnapshotStore(Path directory, OperationJournal journal, long snapshotEveryRecords) {
+        this.directory = directory;
+        this.journal = journal;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+    }
+
+    /**
+     * Загружает последний снимок.
+     *
+     * @param users возвращает данные пользователя по его идентификатору
+     * @return номер первого сегмента журнала, которого нет в снимке
+     */
+    public long load(Function<String, UserData> users) throws IOException {
+        List<Long> generations = listSnapshots(directory);
+        if (generations.isEmpty()) {
+            return 0;
+        }
+
+        long generation = generations.get(generations.size() - 1);
+        Path file = snapshotFile(directory, generation);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            decode(buffer, generation, users);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Снимок " + file + " поврежден", e);
+        }
+        return generation;
+    }
+
+    /**
+     * Проверяет, накопилось ли в журнале достаточно записей для нового снимка.
+     */
+    public boolean isDue() {
+        return journal.getSegmentRecords() >= snapshotEveryRecords && !snapshotInProgress.get();
+    }
+
+    /**
+     * Делает снимок, если с прошлого снимка в журнале накопилось достаточно записей.
+     * <p>
+     * Сначала журнал переключается на новый сегмент, затем в фоне состояние каждого пользователя
+     * снимается в его собственной очереди, параллельно с командами других пользователей,
+     * и сразу дописывается в файл снимка. Одновременно снимается не больше {@value #CAPTURE_WINDOW}
+     * пользователей, поэтому в памяти не собираются записи всех пользователей.
+     * Снятое состояние не старше переключения, поэтому содержит все записи старых сегментов;
+     * записи нового сегмента, которые уже попали в снимок, при восстановлении
+     * пропускаются по номеру изменения.
+     *
+     * @param userIds возвращает всех пользователей, в том числе выгруженных
+     * @param capture запускает снятие состояния пользователя,
+     *                будущее возвращает запись пользователя из {@link #encodeUser}
+     */
+    public void maybeSnapshot(Supplier<Collection<String>> userIds,
+                              Function<String, CompletableFuture<byte[]>> capture) {
+        if (!isDue() || writer.isShutdown() || !snapshotInProgress.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long generation = journal.rotate();
+            CompletableFuture.runAsync(() -> {
+                        try {
+                            write(generation, userIds.get(), capture);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, writer)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            BotLog.global().error("snapshot_failed", null, error);
+                        }
+                        snapshotInProgress.set(false);
+                    });
+        } catch (IOException | RuntimeException e) {
+            snapshotInProgress.set(false);
+            BotLog.global().error("snapshot_failed", null, e);
+        }
+    }
+
+    /**
+     * Дожидается записи начатого снимка.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Записывает снимок во временный файл по мере снятия пользователей и атомарно
+     * переименовывает его, после чего удаляет устаревшие снимки и сегменты журнала.
+     * Формат: заголовок, записи пользователей, количество пользователей и CRC32 всего предыдущего.
+     */
+    private void write(long generation, Collection<String> userIds,
+                       Function<String, CompletableFuture<byte[]>> capture) throws IOException {
+        Path file = snapshotFile(directory, generation);
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            // поток не закрывается: канал закрывает try
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), WRITE_BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>(CAPTURE_WINDOW);
+            for (String userId : userIds) {
+                if (inFlight.size() == CAPTURE_WINDOW) {
+                    out.write(inFlight.poll().join());
+                }
+                inFlight.add(capture.apply(userId));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(inFlight.poll().join());
+            }
+            out.writeInt(userIds.size());
+            out.flush();
+
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (long older : listSnapshots(directory)) {
+            if (older < generation) {
+                Files.deleteIfExists(snapshotFile(directory, older));
+            }
+        }
+        journal.deleteSegmentsBefore(generation);
+    }
+
+    /**
+     * Кодирует данные одного пользователя.
+     * Вызывается в очереди пользователя, пока его данные никто не изменяет.
+     */
+    static byte[] encodeUser(String userId, UserData userData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeString(out, userId);
+            out.writeLong(userData.getVersion());
+            writeStrings(out, userData.getIncomeCategories());
+            writeStrings(out, userData.getExpenseCategories());
+            writeOperations(out, userData.getAllIncomes());
+            writeOperations(out, userData.getAllExpenses());
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeOperations(DataOutputStream out, List<Operation> operations) throws IOException {
+        out.writeInt(operations.size());
+        for (Operation operation : operations) {
+            writeString(out, operation.getName());
+            writeString(out, operation.getCategory());
+            out.writeLong(operation.getAmount().getMinorUnits());
+            out.writeLong(operation.getDate().toEpochDay());
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Проверяет контрольную сумму и восстанавливает пользователей из снимка
+     */
+    private static void decode(ByteBuffer buffer, long generation, Function<String, UserData> users)
+            throws IOException {
+        int size = buffer.limit();
+        if (size < Integer.BYTES + Short.BYTES + TRAILER_SIZE
+                || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл snapshot." + generation + ".bin не является снимком");
+        }
+        short formatVersion = buffer.getShort(Integer.BYTES);
+        if (formatVersion != VERSION) {
+            throw new IOException("Неподдерживаемая версия снимка: " + formatVersion);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(size - Integer.BYTES));
+        if ((int) crc.getValue() != buffer.getInt(size - Integer.BYTES)) {
+            throw new IOException("Неверная контрольная сумма снимка snapshot." + generation + ".bin");
+        }
+
+        int count = buffer.getInt(size - TRAILER_SIZE);
+        buffer.position(Integer.BYTES + Short.BYTES);
+        byte[] scratch = new byte[256];
+        List<String> incomeCategories = new ArrayList<>();
+        List<String> expenseCategories = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            decodeUser(buffer, scratch, incomeCategories, expenseCategories, users);
+        }
+    }
+
+    /**
+     * Восстанавливает одного пользователя из записи, полученной от {@link #encodeUser}.
+     *
+     * @param record запись пользователя
+     * @param users возвращает пустые данные пользователя по его идентификатору
+     * @return восстановленные данные пользователя
+     */
+    static UserData decodeUser(byte[] record, Function<String, UserData> users) {
+        return decodeUser(ByteBuffer.wrap(record), new byte[256],
+                new ArrayList<>(), new ArrayList<>(), users);
+    }
+
+    private static UserData decodeUser(ByteBuffer buffer, byte[] scratch,
+                                       List<String> incomeCategories, List<String> expenseCategories,
+                                       Function<String, UserData> users) {
+        String userId = readString(buffer, scratch);
+        UserData userData = users.apply(userId);
+        long version = buffer.getLong();
+
+        incomeCategories.clear();
+        expenseCategories.clear();
+        readStrings(buffer, scratch, incomeCategories);
+        readStrings(buffer, scratch, expenseCategories);
+        userData.restoreCategories(incomeCategories, expenseCategories);
+
+        int incomes = buffer.getInt();
+        for (int j = 0; j < incomes; j++) {
+            userData.restoreIncome(readOperation(buffer, scratch));
+        }
+        int expenses = buffer.getInt();
+        for (int j = 0; j < expenses; j++) {
+            userData.restoreExpense(readOperation(buffer, scratch));
+        }
+        userData.restoreVersion(version);
+        return userData;
+    }
+
+    private static Operation readOperation(ByteBuffer buffer, byte[] scratch) {
+        String name = readString(buffer, scratch);
+        String category = readString(buffer, scratch);
+        Money amount = Money.ofMinorUnits(buffer.getLong());
+        long epochDay = buffer.getLong();
+        return new Operation(name, amount, category, LocalDate.ofEpochDay(epochDay));
+    }
+
+    private static void readStrings(ByteBuffer buffer, byte[] scratch, List<String> values) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer, scratch));
+        }
+    }
+
+    /**
+     * Читает строку UTF-8. Короткие строки копируются через общий буфер,
+     * чтобы не выделять массив под каждую строку.
+     */
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Некорректная длина строки: " + length);
+        }
+        byte[] target = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(target, 0, length);
+        return new String(target, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Path snapshotFile(Path directory, long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Возвращает номера снимков в каталоге по возрастанию
+     */
+    private static List<Long> listSnapshots(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(SNAPSHOT_PREFIX.length(),
+                        fileName.length() - SNAPSHOT_SUFFIX.length());
+                try {
+                    generations.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    // посторонний файл с похожим именем
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
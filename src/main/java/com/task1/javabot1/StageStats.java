@@ -0,0 +1,87 @@
+package com.task1.javabot1;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики и гистограмма задержек одного этапа обработки одной команды.
+ */
+public class StageStats implements StageStatsMBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final BotMetrics.Stage stage;
+    private final String command;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    StageStats(BotMetrics.Stage stage, String command) {
+        this.stage = stage;
+        this.command = command;
+    }
+
+    /**
+     * Записывает выполнение этапа.
+     *
+     * @param nanos длительность в наносекундах
+     * @param failed завершился ли этап ошибкой
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    BotMetrics.Stage stage() {
+        return stage;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getStage() {
+        return stage.getLabel();
+    }
+
+    @Override
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : latency.getSum() / NANOS_PER_MILLI / count;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtQuantile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtQuantile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.getValueAtQuantile(0.999) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,25 @@
+package com.task1.javabot1;
+
+/**
+ * Показатели одного этапа обработки одной команды для JMX.
+ * Время — в миллисекундах.
+ */
+public interface StageStatsMBean {
+    String getStage();
+
+    String getCommand();
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,51 @@
+package com.task1.javabot1;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь строк с компактными целыми идентификаторами.
+ * Одинаковые строки хранятся один раз, а в данных хранится только их номер.
+ */
+public class StringTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Возвращает идентификатор строки, добавляя ее в словарь при необходимости
+     */
+    public int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        int newId = values.size();
+        values.add(value);
+        ids.put(value, newId);
+        return newId;
+    }
+
+    /**
+     * Возвращает идентификатор строки или -1, если ее нет в словаре
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Возвращает строку по идентификатору
+     */
+    public String get(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * Возвращает количество строк в словаре
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,114 @@
+package com.task1.javabot1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выполняет запросы к Telegram API через собственный пул HTTP-соединений.
+ * <p>
+ * Клиент внутри telegrambots создается с пулом на два соединения с одним хостом,
+ * и размер этого пула нельзя изменить настройками. Поэтому ответы пользователям
+ * отправляются через этот клиент: запросы кодируются так же, как в telegrambots,
+ * а соединений с Telegram API может быть сколько задано.
+ */
+public class TelegramHttpSender implements SendQueue.Sender, AutoCloseable {
+    /**
+     * Сколько HTTP-соединений с Telegram API держать одновременно (BOT_MAX_CONNECTIONS)
+     */
+    static final int DEFAULT_MAX_CONNECTIONS = 32;
+    private static final int TIMEOUT_MILLIS = 75_000;
+    private static final long CONNECTION_TIME_TO_LIVE_SECONDS = 70;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CloseableHttpClient httpClient;
+    private final String url;
+    private final int maxConnections;
+
+    /**
+     * Создает клиента с пулом соединений заданного размера.
+     *
+     * @param baseUrl адрес Telegram API, например https://api.telegram.org/bot
+     * @param botToken токен бота
+     * @param maxConnections сколько соединений с Telegram API держать одновременно
+     */
+    public TelegramHttpSender(String baseUrl, String botToken, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Нужно хотя бы одно соединение: " + maxConnections);
+        }
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                CONNECTION_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setSocketTimeout(TIMEOUT_MILLIS)
+                .setConnectTimeout(TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        this.url = baseUrl + botToken + "/";
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Возвращает размер пула из переменной окружения BOT_MAX_CONNECTIONS или значение по умолчанию
+     */
+    static int maxConnectionsFromEnv() {
+        String value = System.getenv("BOT_MAX_CONNECTIONS");
+        return value != null ? Integer.parseInt(value) : DEFAULT_MAX_CONNECTIONS;
+    }
+
+    /**
+     * Возвращает, сколько соединений с Telegram API может быть открыто одновременно
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Отправляет запрос и разбирает ответ. Ошибка Telegram API приходит
+     * как {@link org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException}.
+     */
+    @Override
+    public void send(BotApiMethod<?> method) throws TelegramApiException {
+        method.validate();
+        HttpPost post = new HttpPost(url + method.getMethod());
+        post.addHeader("charset", StandardCharsets.UTF_8.name());
+        try {
+            post.setEntity(new StringEntity(objectMapper.writeValueAsString(method), ContentType.APPLICATION_JSON));
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                method.deserializeResponse(EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new TelegramApiException("Unable to execute " + method.getMethod() + " method", e);
+        }
+    }
+
+    /**
+     * Закрывает соединения пула
+     */
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            BotLog.global().error("http_close_failed", null, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.task1.javabot1;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ведро токенов для ограничения частоты запросов.
+ * Токены пополняются равномерно до емкости ведра; каждый запрос забирает один токен.
+ * Время передается явно в наносекундах, поэтому класс не зависит от часов.
+ * Класс не потокобезопасен.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long updatedAt;
+
+    /**
+     * Создает полное ведро.
+     *
+     * @param capacity сколько запросов можно сделать подряд
+     * @param tokensPerSecond сколько токенов добавляется за секунду
+     * @param now текущее время в наносекундах
+     */
+    public TokenBucket(int capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    /**
+     * Возвращает, через сколько наносекунд появится токен, или 0, если он есть сейчас
+     */
+    public long nanosUntilAvailable(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Забирает токен. Перед вызовом нужно убедиться, что токен есть
+     */
+    public void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    /**
+     * Возвращает, через сколько наносекунд ведро наполнится, или 0, если оно уже полное
+     */
+    public long nanosUntilFull(long now) {
+        refill(now);
+        return tokens >= capacity ? 0 : (long) Math.ceil((capacity - tokens) / tokensPerNano);
+    }
+
+    private void refill(long now) {
+        if (now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+        }
+    }
+}
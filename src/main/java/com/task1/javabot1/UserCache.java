@@ -0,0 +1,302 @@
+package com.task1.javabot1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Данные пользователей в памяти с ограничением на количество.
+ * <p>
+ * Когда пользователей в памяти больше допустимого, дольше всех неактивные
+ * выгружаются на диск в каталог выгрузки, а при следующем сообщении загружаются обратно.
+ * Поэтому память растет с числом активных пользователей, а не всех, кто когда-либо писал боту.
+ * <p>
+ * Обращение к пользователю только записывает в него номер обращения, без общей блокировки.
+ * Пользователи перебираются в поисках давно неактивных, лишь когда их в памяти больше
+ * допустимого, и тогда выбираются с запасом, чтобы следующий перебор был нескоро.
+ * <p>
+ * Выгрузка и загрузка пользователя выполняются в его почтовом ящике, как и остальные
+ * обращения к его данным. Файлы выгрузки — только кеш: состояние по-прежнему
+ * восстанавливается из снимка и журнала, а снимок включает и выгруженных пользователей.
+ * Поэтому при запуске каталог выгрузки очищается.
+ */
+public class UserCache {
+    /**
+     * Сколько пользователей держать в памяти (BOT_MAX_RESIDENT_USERS)
+     */
+    public static final int DEFAULT_MAX_RESIDENT_USERS = 10_000;
+
+    private static final String SPILL_SUFFIX = ".user";
+    /**
+     * Какую долю предела выгружать сверх лишних пользователей
+     */
+    private static final int EVICTION_SLACK_DIVISOR = 16;
+
+    /**
+     * Данные пользователя в памяти и номер последнего обращения к ним
+     */
+    private static final class Resident {
+        private final UserData data;
+        private volatile long lastAccess;
+
+        private Resident(UserData data) {
+            this.data = data;
+        }
+    }
+
+    private final Function<String, UserData> factory;
+    private final Path spillDirectory;
+    private final int maxResidentUsers;
+
+    private final Map<String, Resident> resident = new ConcurrentHashMap<>();
+    /**
+     * Счетчик обращений: чем меньше номер последнего обращения, тем дольше пользователь неактивен
+     */
+    private final AtomicLong accesses = new AtomicLong();
+    /**
+     * Кандидат на выгрузку с номером обращения, снятым в момент перебора
+     */
+    private record Candidate(String userId, long lastAccess) {
+    }
+
+    /**
+     * Не дает двум потокам одновременно выбирать пользователей для выгрузки
+     */
+    private final Object overflowLock = new Object();
+    /**
+     * Пользователи, для которых уже поставлена выгрузка
+     */
+    private final Set<String> evicting = ConcurrentHashMap.newKeySet();
+    /**
+     * Выгрузка и загрузка берут блокировку на чтение, перечисление всех пользователей — на запись,
+     * чтобы пользователь не пропал между списком в памяти и списком на диске
+     */
+    private final ReadWriteLock transitions = new ReentrantReadWriteLock();
+
+    /**
+     * Создает хранилище без ограничения, все пользователи остаются в памяти.
+     *
+     * @param factory создает пустые данные нового пользователя
+     */
+    public UserCache(Function<String, UserData> factory) {
+        this.factory = factory;
+        this.spillDirectory = null;
+        this.maxResidentUsers = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Создает хранилище, выгружающее неактивных пользователей в каталог.
+     * Оставшиеся с прошлого запуска файлы выгрузки удаляются.
+     *
+     * @param factory создает пустые данные нового пользователя
+     * @param spillDirectory каталог выгрузки
+     * @param maxResidentUsers сколько пользователей держать в памяти
+     */
+    public UserCache(Function<String, UserData> factory, Path spillDirectory, int maxResidentUsers)
+            throws IOException {
+        this.factory = factory;
+        this.spillDirectory = spillDirectory;
+        this.maxResidentUsers = maxResidentUsers;
+        for (String userId : listSpilled()) {
+            Files.deleteIfExists(spillFile(userId));
+        }
+    }
+
+    /**
+     * Возвращает данные пользователя, при необходимости загружая их с диска или создавая.
+     * Вызывается только в почтовом ящике пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return данные пользователя
+     */
+    public UserData get(String userId) {
+        Resident entry = resident.get(userId);
+        if (entry == null) {
+            entry = load(userId);
+        }
+        evicting.remove(userId);
+        entry.lastAccess = accesses.incrementAndGet();
+        return entry.data;
+    }
+
+    /**
+     * Возвращает пользователей, которых пора выгрузить, от давно неактивных к недавним.
+     * Каждый пользователь возвращается один раз, пока его выгрузка не выполнена.
+     * Пока предел не превышен, ничего не перебирает; при превышении выбирает лишних
+     * и еще 1/16 предела, за O(n log k), где k — сколько пользователей выбрано.
+     */
+    public List<String> overflow() {
+        if (spillDirectory == null || resident.size() - evicting.size() <= maxResidentUsers) {
+            return List.of();
+        }
+        synchronized (overflowLock) {
+            int excess = resident.size() - evicting.size() - maxResidentUsers;
+            if (excess <= 0) {
+                return List.of();
+            }
+            int limit = excess + maxResidentUsers / EVICTION_SLACK_DIVISOR;
+            // самый недавний из выбранных наверху, чтобы его можно было заменить более старым
+            PriorityQueue<Candidate> oldest = new PriorityQueue<>(limit + 1,
+                    Comparator.comparingLong(Candidate::lastAccess).reversed());
+            for (Map.Entry<String, Resident> entry : resident.entrySet()) {
+                if (evicting.contains(entry.getKey())) {
+                    continue;
+                }
+                oldest.add(new Candidate(entry.getKey(), entry.getValue().lastAccess));
+                if (oldest.size() > limit) {
+                    oldest.poll();
+                }
+            }
+
+            List<String> userIds = new ArrayList<>(oldest.size());
+            while (!oldest.isEmpty()) {
+                userIds.add(oldest.poll().userId());
+            }
+            Collections.reverse(userIds);
+            userIds.removeIf(userId -> !evicting.add(userId));
+            return userIds;
+        }
+    }
+
+    /**
+     * Выгружает пользователя на диск, если после постановки выгрузки он не писал боту.
+     * Вызывается только в почтовом ящике пользователя.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void evict(String userId) {
+        if (!evicting.remove(userId)) {
+            return;
+        }
+        Resident entry = resident.get(userId);
+        if (entry == null) {
+            return;
+        }
+        byte[] record = SnapshotStore.encodeUser(userId, entry.data);
+        transitions.readLock().lock();
+        try {
+            Files.createDirectories(spillDirectory);
+            Path file = spillFile(userId);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, record);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            resident.remove(userId);
+        } catch (IOException e) {
+            BotLog.global().error("spill_failed", "Пользователь " + userId + " оставлен в памяти", e);
+        } finally {
+            transitions.readLock().unlock();
+        }
+    }
+
+    /**
+     * Кодирует данные пользователя для снимка: из памяти или готовую запись из файла выгрузки.
+     * Вызывается только в почтовом ящике пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return запись пользователя в формате {@link SnapshotStore#encodeUser}
+     */
+    public byte[] encode(String userId) {
+        Resident entry = resident.get(userId);
+        if (entry != null) {
+            return SnapshotStore.encodeUser(userId, entry.data);
+        }
+        try {
+            return Files.readAllBytes(spillFile(userId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Возвращает всех пользователей: и в памяти, и выгруженных
+     */
+    public Set<String> userIds() {
+        transitions.writeLock().lock();
+        try {
+            Set<String> userIds = new LinkedHashSet<>(resident.keySet());
+            userIds.addAll(listSpilled());
+            return userIds;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            transitions.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Находится ли пользователь в памяти
+     */
+    public boolean isResident(String userId) {
+        return resident.containsKey(userId);
+    }
+
+    /**
+     * Возвращает количество пользователей в памяти
+     */
+    int residentCount() {
+        return resident.size();
+    }
+
+    private Resident load(String userId) {
+        transitions.readLock().lock();
+        try {
+            Resident entry;
+            Path file = spillDirectory != null ? spillFile(userId) : null;
+            if (file != null && Files.exists(file)) {
+                entry = new Resident(SnapshotStore.decodeUser(Files.readAllBytes(file), factory));
+                resident.put(userId, entry);
+                Files.delete(file);
+            } else {
+                entry = new Resident(factory.apply(userId));
+                resident.put(userId, entry);
+            }
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            transitions.readLock().unlock();
+        }
+    }
+
+    private List<String> listSpilled() throws IOException {
+        if (spillDirectory == null || !Files.isDirectory(spillDirectory)) {
+            return Collections.emptyList();
+        }
+        List<String> userIds = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "*" + SPILL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String encoded = name.substring(0, name.length() - SPILL_SUFFIX.length());
+                userIds.add(new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8));
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * Имя файла — идентификатор в Base64, чтобы в нем не было недопустимых символов
+     */
+    private Path spillFile(String userId) {
+        String encoded = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+        return spillDirectory.resolve(encoded + SPILL_SUFFIX);
+    }
+}
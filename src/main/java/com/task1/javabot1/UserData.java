@@ -2,47 +2,53 @@ package com.task1.javabot1;
 
 import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Collections;
-import java.util.stream.Collectors;
 
 /**
  * Умный менеджер данных пользователя.
  * Инкапсулирует логику работы с задачами
+ * <p>
+ * Изменение сначала проверяется, затем записывается в журнал и только потом применяется
+ * в памяти. Если журнал отказал, исключение выходит до изменения данных, поэтому в памяти
+ * не бывает изменений, которых нет в журнале.
  */
 public class UserData {
-    private final Map<String, List<Operation>> incomes = new HashMap<>();
-    private final Map<String, List<Operation>> expenses = new HashMap<>();
+    /**
+     * Сколько операций выводится на одной странице списка
+     */
+    public static final int PAGE_SIZE = 20;
+
+    private final OperationLedger incomes = new OperationLedger();
+    private final OperationLedger expenses = new OperationLedger();
 
-    private final Set<String> incomeCategories = new HashSet<>();
-    private final Set<String> expenseCategories = new HashSet<>();
+    /**
+     * Наборы категорий неизменяемы: у пользователя, не менявшего категории, это общие наборы по умолчанию
+     */
+    private CategorySet incomeCategories = CategorySet.DEFAULT_INCOME;
+    private CategorySet expenseCategories = CategorySet.DEFAULT_EXPENSE;
 
-    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private final String userId;
+    private final OperationJournal journal;
+    private long version;
 
+    /**
+     * Данные пользователя, которые живут только в памяти
+     */
     public UserData() {
-        initDefaultCategories();
+        this(null, null);
     }
 
     /**
-    * Добавление начальных категорий
-    */
-    private void initDefaultCategories() {
-        incomeCategories.add("работа");
-        incomeCategories.add("подарок");
-
-        expenseCategories.add("еда");
-        expenseCategories.add("транспорт");
-        expenseCategories.add("дом");
-        expenseCategories.add("здоровье");
-        expenseCategories.add("развлечения");
-        expenseCategories.add("другое");
+     * Данные пользователя, изменения которых записываются в журнал
+     *
+     * @param userId идентификатор пользователя
+     * @param journal журнал операций или null, если сохранять изменения не нужно
+     */
+    public UserData(String userId, OperationJournal journal) {
+        this.userId = userId;
+        this.journal = journal;
     }
 
     /**
@@ -90,7 +96,11 @@ public class UserData {
             return "Категория «" + trimmedCategory + "» уже существует.";
         }
 
-        incomeCategories.add(trimmedCategory);
+        if (journal != null) {
+            journal.appendAddIncomeCategory(userId, version + 1, trimmedCategory);
+        }
+        incomeCategories = incomeCategories.with(trimmedCategory);
+        version++;
         return "Категория «" + trimmedCategory + "» добавлена.";
     }
 
@@ -107,7 +117,11 @@ public class UserData {
             return "Категория «" + trimmedCategory + "» уже существует.";
         }
 
-        expenseCategories.add(trimmedCategory);
+        if (journal != null) {
+            journal.appendAddExpenseCategory(userId, version + 1, trimmedCategory);
+        }
+        expenseCategories = expenseCategories.with(trimmedCategory);
+        version++;
         return "Категория «" + trimmedCategory + "» добавлена.";
     }
 
@@ -121,14 +135,17 @@ public class UserData {
             return "Категория «" + trimmedCategory + "» не найдена.";
         }
 
-        if (incomes.containsKey(trimmedCategory) &&
-                !incomes.get(trimmedCategory).isEmpty()) {
-            int count = incomes.get(trimmedCategory).size();
+        int count = incomes.getCategoryCount(trimmedCategory);
+        if (count > 0) {
             return "Категория «" + trimmedCategory + "» используется в " + count +
                     " операциях. Сначала удалите или измените эти операции.";
         }
 
-        incomeCategories.remove(trimmedCategory);
+        if (journal != null) {
+            journal.appendDeleteIncomeCategory(userId, version + 1, trimmedCategory);
+        }
+        incomeCategories = incomeCategories.without(trimmedCategory);
+        version++;
         return "Категория «" + trimmedCategory + "» удалена.";
     }
 
@@ -142,14 +159,17 @@ public class UserData {
             return "Категория «" + trimmedCategory + "» не найдена.";
         }
 
-        if (expenses.containsKey(trimmedCategory) &&
-                !expenses.get(trimmedCategory).isEmpty()) {
-            int count = expenses.get(trimmedCategory).size();
+        int count = expenses.getCategoryCount(trimmedCategory);
+        if (count > 0) {
             return "Категория «" + trimmedCategory + "» используется в " + count +
                     " операциях. Сначала удалите или измените эти операции.";
         }
 
-        expenseCategories.remove(trimmedCategory);
+        if (journal != null) {
+            journal.appendDeleteExpenseCategory(userId, version + 1, trimmedCategory);
+        }
+        expenseCategories = expenseCategories.without(trimmedCategory);
+        version++;
         return "Категория «" + trimmedCategory + "» удалена.";
     }
 
@@ -158,7 +178,7 @@ public class UserData {
      * Формат: /add_in сумма название категория дата
      * Если дата не указана - используется текущая
      */
-    public String addIncome(String name, Double amount, String category, String dateStr) {
+    public String addIncome(String name, Money amount, String category, String dateStr) {
         String trimmedName = name.trim();
         String trimmedCategory = category.trim();
 
@@ -166,24 +186,17 @@ public class UserData {
             return buildCategoryError(trimmedCategory, "доходов", getIncomeCategoriesSorted());
         }
 
-        LocalDate operationDate;
+        Operation operation = new Operation(trimmedName, amount, trimmedCategory, parseDate(dateStr));
 
-        if (dateStr != null && !dateStr.trim().isEmpty()) {
-            try {
-                operationDate = LocalDate.parse(dateStr.trim(), dateFormatter);
-            } catch (DateTimeParseException e) {
-                operationDate = LocalDate.now();
-            }
-        } else {
-            operationDate = LocalDate.now();
+        incomes.checkAdd(operation);
+        if (journal != null) {
+            journal.appendAddIncome(userId, version + 1, operation);
         }
-
-        Operation operation = new Operation(trimmedName, amount, trimmedCategory, operationDate);
-
-        incomes.computeIfAbsent(trimmedCategory, k -> new ArrayList<>()).add(operation);
+        incomes.add(operation);
+        version++;
 
         return "– Доход «" + trimmedName + "» на сумму " +
-                String.format("%,.2f", amount) + " добавлен.\n" +
+                MoneyFormat.format(amount) + " добавлен.\n" +
                 "Категория: " + trimmedCategory + "\n"+
                 "Дата: " + operation.getFormattedDate();
     }
@@ -193,7 +206,7 @@ public class UserData {
      * Формат: /add_ex сумма название категория дата
      * Если дата не указана - используется текущая
      */
-    public String addExpense(String name, Double amount, String category, String dateStr) {
+    public String addExpense(String name, Money amount, String category, String dateStr) {
         String trimmedName = name.trim();
         String trimmedCategory = category.trim();
 
@@ -201,88 +214,234 @@ public class UserData {
             return buildCategoryError(trimmedCategory, "расходов", getExpenseCategoriesSorted());
         }
 
-        LocalDate operationDate;
+        Operation operation = new Operation(trimmedName, amount, trimmedCategory, parseDate(dateStr));
 
-        if (dateStr != null && !dateStr.trim().isEmpty()) {
-            try {
-                operationDate = LocalDate.parse(dateStr.trim(), dateFormatter);
-            } catch (DateTimeParseException e) {
-                operationDate = LocalDate.now();
-            }
-        } else {
-            operationDate = LocalDate.now();
+        expenses.checkAdd(operation);
+        if (journal != null) {
+            journal.appendAddExpense(userId, version + 1, operation);
         }
-
-        Operation operation = new Operation(trimmedName, amount, trimmedCategory, operationDate);
-
-        expenses.computeIfAbsent(trimmedCategory, k -> new ArrayList<>()).add(operation);
+        expenses.add(operation);
+        version++;
 
         return "– Расход «" + trimmedName + "» на сумму " +
-                String.format("%,.2f", amount) + " добавлен.\n" +
+                MoneyFormat.format(amount) + " добавлен.\n" +
                 "Категория: " + trimmedCategory + "\n" +
                 "Дата: " + operation.getFormattedDate();
     }
 
     /**
-     * Удаляет операцию дохода
+     * Разбирает дату операции. Если дата не указана или некорректна — используется текущая
+     */
+    private LocalDate parseDate(String dateStr) {
+        LocalDate date = dateStr != null ? DateCodec.parse(dateStr.trim()) : null;
+        return date != null ? date : LocalDate.now();
+    }
+
+    /**
+     * Удаляет доходы с указанными названием и суммой из одной категории —
+     * той, где такая операция добавлена раньше всего
+     *
+     * @see OperationLedger#remove(String, Money)
      */
-    public String deleteIncome(String name, Double amount) {
+    public String deleteIncome(String name, Money amount) {
         String trimmedName = name.trim();
-        for (Map.Entry<String, List<Operation>> entry : incomes.entrySet()) {
-            List<Operation> operations = entry.getValue();
-            boolean removed = operations.removeIf(op -> op.matches(trimmedName, amount));
-
-            if (removed) {
-                if (operations.isEmpty()) {
-                    incomes.remove(entry.getKey());
-                }
-                return "Доход «" + trimmedName + "» на сумму " + amount + " удален.";
+        if (incomes.canRemove(trimmedName, amount)) {
+            if (journal != null) {
+                journal.appendDeleteIncome(userId, version + 1, trimmedName, amount);
             }
+            incomes.remove(trimmedName, amount);
+            version++;
+            return "Доход «" + trimmedName + "» на сумму " + amount.doubleValue() + " удален.";
         }
 
-        return "Сумма " + amount + " не найдена в доходе «" + trimmedName + "»";
+        return "Сумма " + amount.doubleValue() + " не найдена в доходе «" + trimmedName + "»";
     }
 
     /**
-     * Удаляет операцию расхода
+     * Удаляет расходы с указанными названием и суммой из одной категории —
+     * той, где такая операция добавлена раньше всего
+     *
+     * @see OperationLedger#remove(String, Money)
      */
-    public String deleteExpense(String name, Double amount) {
+    public String deleteExpense(String name, Money amount) {
         String trimmedName = name.trim();
-        for (Map.Entry<String, List<Operation>> entry : expenses.entrySet()) {
-            List<Operation> operations = entry.getValue();
-            boolean removed = operations.removeIf(op -> op.matches(trimmedName, amount));
-
-            if (removed) {
-                if (operations.isEmpty()) {
-                    expenses.remove(entry.getKey());
-                }
-                return "Расход «" + trimmedName + "» на сумму " + amount + " удален.";
+        if (expenses.canRemove(trimmedName, amount)) {
+            if (journal != null) {
+                journal.appendDeleteExpense(userId, version + 1, trimmedName, amount);
             }
+            expenses.remove(trimmedName, amount);
+            version++;
+            return "Расход «" + trimmedName + "» на сумму " + amount.doubleValue() + " удален.";
         }
 
-        return "Сумма " + amount + " не найдена в расходе «" + trimmedName + "»";
+        return "Сумма " + amount.doubleValue() + " не найдена в расходе «" + trimmedName + "»";
+    }
+
+    /**
+     * Возвращает номер последнего изменения данных пользователя.
+     * По нему при восстановлении пропускаются записи журнала, уже учтенные в снимке
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Восстанавливает номер последнего изменения
+     */
+    void restoreVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Возвращает категории доходов по алфавиту без копирования
+     */
+    List<String> getIncomeCategories() {
+        return incomeCategories.sorted();
+    }
+
+    /**
+     * Возвращает категории расходов по алфавиту без копирования
+     */
+    List<String> getExpenseCategories() {
+        return expenseCategories.sorted();
+    }
+
+    /**
+     * Восстанавливает категории из снимка вместо категорий по умолчанию
+     */
+    void restoreCategories(Collection<String> incomeCategories, Collection<String> expenseCategories) {
+        this.incomeCategories = CategorySet.of(incomeCategories);
+        this.expenseCategories = CategorySet.of(expenseCategories);
+    }
+
+    /**
+     * Восстанавливает доход из журнала или снимка
+     */
+    void restoreIncome(Operation operation) {
+        incomes.add(operation);
+    }
+
+    /**
+     * Восстанавливает расход из журнала или снимка
+     */
+    void restoreExpense(Operation operation) {
+        expenses.add(operation);
+    }
+
+    /**
+     * Восстанавливает удаление дохода из журнала
+     */
+    void restoreDeleteIncome(String name, Money amount) {
+        incomes.remove(name, amount);
+    }
+
+    /**
+     * Восстанавливает удаление расхода из журнала
+     */
+    void restoreDeleteExpense(String name, Money amount) {
+        expenses.remove(name, amount);
+    }
+
+    /**
+     * Восстанавливает добавление категории доходов из журнала
+     */
+    void restoreAddIncomeCategory(String category) {
+        incomeCategories = incomeCategories.with(category);
+    }
+
+    /**
+     * Восстанавливает удаление категории доходов из журнала
+     */
+    void restoreDeleteIncomeCategory(String category) {
+        incomeCategories = incomeCategories.without(category);
+    }
+
+    /**
+     * Восстанавливает добавление категории расходов из журнала
+     */
+    void restoreAddExpenseCategory(String category) {
+        expenseCategories = expenseCategories.with(category);
+    }
+
+    /**
+     * Восстанавливает удаление категории расходов из журнала
+     */
+    void restoreDeleteExpenseCategory(String category) {
+        expenseCategories = expenseCategories.without(category);
     }
 
     /**
      * Возвращает все операции доходов
      */
     public List<Operation> getAllIncomes() {
-        List<Operation> all = new ArrayList<>();
-        for (List<Operation> ops : incomes.values()) {
-            all.addAll(ops);
-        }
-        return all;
+        return incomes.getAll();
     }
 
     /**
      * Возвращает все операции расходов
      */
     public List<Operation> getAllExpenses() {
-        List<Operation> all = new ArrayList<>();
-        for (List<Operation> ops : expenses.values()) {
-            all.addAll(ops);
-        }
-        return all;
+        return expenses.getAll();
+    }
+
+    /**
+     * Возвращает до limit самых больших доходов
+     *
+     * @param category категория или null, если нужны все доходы
+     */
+    public List<Operation> getLargestIncomes(int limit, String category) {
+        return incomes.getLargest(limit, category);
+    }
+
+    /**
+     * Возвращает до limit самых больших расходов
+     *
+     * @param category категория или null, если нужны все расходы
+     */
+    public List<Operation> getLargestExpenses(int limit, String category) {
+        return expenses.getLargest(limit, category);
+    }
+
+    /**
+     * Возвращает общую сумму доходов
+     */
+    public Money getIncomeTotal() {
+        return incomes.getTotal();
+    }
+
+    /**
+     * Возвращает общую сумму расходов
+     */
+    public Money getExpenseTotal() {
+        return expenses.getTotal();
+    }
+
+    /**
+     * Возвращает сумму доходов категории
+     */
+    public Money getIncomeCategoryTotal(String category) {
+        return incomes.getCategoryTotal(category);
+    }
+
+    /**
+     * Возвращает сумму расходов категории
+     */
+    public Money getExpenseCategoryTotal(String category) {
+        return expenses.getCategoryTotal(category);
+    }
+
+    /**
+     * Возвращает количество доходов
+     */
+    public int getIncomeCount() {
+        return incomes.getCount();
+    }
+
+    /**
+     * Возвращает количество расходов
+     */
+    public int getExpenseCount() {
+        return expenses.getCount();
     }
 
     /**
@@ -295,12 +454,12 @@ public class UserData {
         String periodTitle = switch (period.toLowerCase()) {
             case "today" -> {
                 startDate = now;
-                yield "сегодня (" + now.format(dateFormatter) + ")";
+                yield "сегодня (" + DateCodec.format(now) + ")";
             }
             case "week" -> {
                 startDate = now.minusDays(6);
-                yield "текущую неделю (" + startDate.format(dateFormatter) +
-                        " - " + now.format(dateFormatter) + ")";
+                yield "текущую неделю (" + DateCodec.format(startDate) +
+                        " - " + DateCodec.format(now) + ")";
             }
             case "month" -> {
                 startDate = now.with(TemporalAdjusters.firstDayOfMonth());
@@ -316,105 +475,137 @@ public class UserData {
                 yield "текущий месяц";
             }
         };
+        return formatStatistics(periodTitle, startDate, now);
+    }
 
-        List<Operation> filteredIncomes = getAllIncomes().stream()
-                .filter(op -> !op.getDate().isBefore(startDate) && !op.getDate().isAfter(now))
-                .collect(Collectors.toList());
+    /**
+     * Возвращает статистику за промежуток дат от from до to включительно
+     */
+    public String getStatistics(LocalDate from, LocalDate to) {
+        return formatStatistics("период " + DateCodec.format(from) + " - " + DateCodec.format(to), from, to);
+    }
 
-        List<Operation> filteredExpenses = getAllExpenses().stream()
-                .filter(op -> !op.getDate().isBefore(startDate) && !op.getDate().isAfter(now))
-                .collect(Collectors.toList());
+    private String formatStatistics(String periodTitle, LocalDate startDate, LocalDate endDate) {
+        Map<String, Money> incomeStats = incomes.getCategoryTotalsBetween(startDate, endDate);
+        Map<String, Money> expenseStats = expenses.getCategoryTotalsBetween(startDate, endDate);
 
-        double totalIncome = filteredIncomes.stream()
-                .mapToDouble(Operation::getAmount)
-                .sum();
-        double totalExpense = filteredExpenses.stream()
-                .mapToDouble(Operation::getAmount)
-                .sum();
-        double balance = totalIncome - totalExpense;
+        Money totalIncome = sum(incomeStats);
+        Money totalExpense = sum(expenseStats);
+        Money balance = totalIncome.minus(totalExpense);
 
-        Map<String, Double> incomeStats = getStatsByCategory(filteredIncomes);
-        Map<String, Double> expenseStats = getStatsByCategory(filteredExpenses);
         addEmptyCategories(incomeStats, expenseStats);
 
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format("Статистика за %s: \n", periodTitle))
-                .append(String.format("Сумма доходов: %,.2f \n", totalIncome))
-                .append(String.format("Сумма расходов: %,.2f \n", totalExpense))
-                .append(String.format("Оставшийся бюджет: %,.2f\n", balance))
-                .append("Статистика по категориям:\n\n");
+        sb.append("Статистика за ").append(periodTitle).append(": \n");
+        MoneyFormat.append(sb.append("Сумма доходов: "), totalIncome).append(" \n");
+        MoneyFormat.append(sb.append("Сумма расходов: "), totalExpense).append(" \n");
+        MoneyFormat.append(sb.append("Оставшийся бюджет: "), balance).append("\n");
+        sb.append("Статистика по категориям:\n\n");
 
         sb.append("Доходы:\n");
         incomeStats.entrySet().stream()
-                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                .forEach(entry -> sb.append(String.format("• %s: %,.2f\n", entry.getKey(), entry.getValue())));
+                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                .forEach(entry -> MoneyFormat.append(sb.append("• ").append(entry.getKey()).append(": "),
+                        entry.getValue()).append("\n"));
 
         sb.append("\nРасходы:\n");
         expenseStats.entrySet().stream()
-                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                .forEach(entry -> sb.append(String.format("• %s: %,.2f\n", entry.getKey(), entry.getValue())));
+                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                .forEach(entry -> MoneyFormat.append(sb.append("• ").append(entry.getKey()).append(": "),
+                        entry.getValue()).append("\n"));
 
         return sb.toString().trim();
     }
 
     /**
-     * Показывает доходы с датой
+     * Показывает первую страницу доходов с датой
      */
     public String showIncomes() {
-        List<Operation> allIncomes = getAllIncomes();
-        if (allIncomes.isEmpty()) {
-            return "— Доходов пока нет";
-        }
-
-        allIncomes.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        return showIncomes(1);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (Operation op : allIncomes) {
-            sb.append("— Доход «").append(op.getName())
-                    .append("» на сумму ").append(String.format("%,.2f", op.getAmount()))
-                    .append(" (категория: ").append(op.getCategory()).append(")")
-                    .append(" Дата: ").append(op.getFormattedDate()).append("\n");
-        }
-        return sb.toString().trim();
+    /**
+     * Показывает страницу доходов с датой, от новых к старым
+     *
+     * @param page номер страницы, начиная с 1
+     */
+    public String showIncomes(int page) {
+        return showOperations(incomes, page, "Доход", "— Доходов пока нет");
     }
 
     /**
-     * Показывает расходы с датой
+     * Показывает первую страницу расходов с датой
      */
     public String showExpenses() {
-        List<Operation> allExpenses = getAllExpenses();
-        if (allExpenses.isEmpty()) {
-            return "— Расходов пока нет";
-        }
+        return showExpenses(1);
+    }
+
+    /**
+     * Показывает страницу расходов с датой, от новых к старым
+     *
+     * @param page номер страницы, начиная с 1
+     */
+    public String showExpenses(int page) {
+        return showOperations(expenses, page, "Расход", "— Расходов пока нет");
+    }
+
+    /**
+     * Возвращает количество страниц в списке доходов
+     */
+    public int getIncomePageCount() {
+        return pageCount(incomes.getCount());
+    }
+
+    /**
+     * Возвращает количество страниц в списке расходов
+     */
+    public int getExpensePageCount() {
+        return pageCount(expenses.getCount());
+    }
 
-        allExpenses.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+    private static int pageCount(int operations) {
+        return Math.max(1, (operations + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    /**
+     * Форматирует только операции запрошенной страницы.
+     * Номер страницы выводится, если страниц больше одной
+     */
+    private String showOperations(OperationLedger ledger, int page, String kind, String empty) {
+        if (ledger.getCount() == 0) {
+            return empty;
+        }
+        int pages = pageCount(ledger.getCount());
+        if (page < 1 || page > pages) {
+            return "Страницы " + page + " нет. Всего страниц: " + pages;
+        }
 
         StringBuilder sb = new StringBuilder();
-        for (Operation op : allExpenses) {
-            sb.append("— Расход «").append(op.getName())
-                    .append("» на сумму ").append(String.format("%,.2f", op.getAmount()))
+        for (Operation op : ledger.getNewestFirst((page - 1) * PAGE_SIZE, PAGE_SIZE)) {
+            sb.append("— ").append(kind).append(" «").append(op.getName())
+                    .append("» на сумму ");
+            MoneyFormat.append(sb, op.getAmount())
                     .append(" (категория: ").append(op.getCategory()).append(")")
                     .append(" Дата: ").append(op.getFormattedDate()).append("\n");
         }
+        if (pages > 1) {
+            sb.append("\nСтраница ").append(page).append(" из ").append(pages);
+        }
         return sb.toString().trim();
     }
 
     /**
-    * Отсортировываем список категорий доходов
+    * Список категорий доходов по алфавиту, отсортирован заранее в наборе
     */
     private List<String> getIncomeCategoriesSorted() {
-        List<String> sorted = new ArrayList<>(incomeCategories);
-        Collections.sort(sorted);
-        return sorted;
+        return incomeCategories.sorted();
     }
     
     /**
-    * Отсортировываем список категорий расходов
+    * Список категорий расходов по алфавиту, отсортирован заранее в наборе
     */
     private List<String> getExpenseCategoriesSorted() {
-        List<String> sorted = new ArrayList<>(expenseCategories);
-        Collections.sort(sorted);
-        return sorted;
+        return expenseCategories.sorted();
     }
 
     /**
@@ -433,26 +624,26 @@ public class UserData {
     }
 
     /**
-    * Получаем статистику категорий доходов
-    */
-    private Map<String, Double> getStatsByCategory(List<Operation> operations) {
-        Map<String, Double> stats = new HashMap<>();
-        for (Operation op : operations) {
-            stats.put(op.getCategory(), stats.getOrDefault(op.getCategory(), 0.0) + op.getAmount());
+     * Складывает суммы по категориям
+     */
+    private Money sum(Map<String, Money> stats) {
+        Money sum = Money.ZERO;
+        for (Money amount : stats.values()) {
+            sum = sum.plus(amount);
         }
-        return stats;
+        return sum;
     }
 
     /**
      * Добавляет категории с нулевой суммой в статистику
      */
-    private void addEmptyCategories(Map<String, Double> incomeStats, Map<String, Double> expenseStats) {
+    private void addEmptyCategories(Map<String, Money> incomeStats, Map<String, Money> expenseStats) {
         for (String category : getIncomeCategoriesSorted()) {
-            incomeStats.putIfAbsent(category, 0.0);
+            incomeStats.putIfAbsent(category, Money.ZERO);
         }
 
         for (String category : getExpenseCategoriesSorted()) {
-            expenseStats.putIfAbsent(category, 0.0);
+            expenseStats.putIfAbsent(category, Money.ZERO);
         }
     }
 }
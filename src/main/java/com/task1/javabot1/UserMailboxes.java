@@ -0,0 +1,157 @@
+package com.task1.javabot1;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Почтовые ящики пользователей: задачи одного пользователя выполняются строго
+ * по очереди в порядке поступления, задачи разных пользователей — параллельно
+ * на виртуальных потоках, без общей блокировки.
+ * <p>
+ * Ящик запускается на исполнителе, только когда в нем появляется первая задача,
+ * и за один запуск выполняет все накопившиеся задачи.
+ * Поэтому данные пользователя всегда изменяет не больше одного потока.
+ * <p>
+ * Ящик выгруженного пользователя убирается через {@link #removeIfIdle}, чтобы ящики
+ * занимали память только для пользователей в памяти, а не для всех, кто когда-либо писал боту.
+ */
+public class UserMailboxes implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final ExecutorService executor;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Object idle = new Object();
+
+    /**
+     * Очередь задач одного пользователя
+     */
+    private final class Mailbox implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Выполняет все задачи из очереди. Если после снятия флага
+         * успела прийти новая задача, продолжает сам, не дожидаясь нового запуска
+         */
+        @Override
+        public void run() {
+            do {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                scheduled.set(false);
+            } while (!tasks.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * Создает ящики, которые выполняют задачи на виртуальных потоках.
+     */
+    public UserMailboxes() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Создает ящики с заданным исполнителем задач.
+     *
+     * @param executor исполнитель задач
+     */
+    UserMailboxes(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Кладет задачу в ящик пользователя.
+     * Исключение задачи печатается и не мешает выполнению следующих задач.
+     *
+     * @param key идентификатор пользователя
+     * @param task задача
+     * @return завершается, когда задача выполнена
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pending.incrementAndGet();
+        Runnable wrapped = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                BotLog.global().error("task_failed", "Задача пользователя " + key + " завершилась с ошибкой", e);
+            } finally {
+                done.complete(null);
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (idle) {
+                        idle.notifyAll();
+                    }
+                }
+            }
+        };
+        // задача кладется под блокировкой ключа, чтобы removeIfIdle не убрал ящик с новой задачей
+        Mailbox mailbox = mailboxes.compute(key, (k, current) -> {
+            Mailbox target = current != null ? current : new Mailbox();
+            target.tasks.add(wrapped);
+            return target;
+        });
+        mailbox.schedule();
+        return done;
+    }
+
+    /**
+     * Убирает ящик пользователя, если в его очереди сейчас нет задач; следующая задача создаст
+     * новый ящик. Положить задачу в уже убранный ящик нельзя: {@link #submit} и этот метод
+     * меняют ящик под блокировкой ключа.
+     * <p>
+     * Вызывать нужно последним действием задачи из ящика этого же пользователя. Тогда все
+     * остальные задачи старого ящика уже выполнены, но задачи нового ящика могут начаться
+     * до того, как вызывающая задача вернется и завершится ее результат из {@link #submit}.
+     * Поэтому после вызова задача не должна обращаться к данным пользователя.
+     *
+     * @param key идентификатор пользователя
+     */
+    public void removeIfIdle(String key) {
+        mailboxes.computeIfPresent(key, (k, mailbox) -> mailbox.tasks.isEmpty() ? null : mailbox);
+    }
+
+    /**
+     * Возвращает количество ящиков
+     */
+    int mailboxCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Дожидается выполнения всех задач, в том числе поставленных другими задачами
+     * во время ожидания, и останавливает исполнителя.
+     */
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+        synchronized (idle) {
+            long remaining;
+            while (pending.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,115 @@
+package com.task1.javabot1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Встроенный HTTP-сервер для получения обновлений от Telegram через вебхук.
+ * <p>
+ * Соединения принимает и разбирает поток сервера, а запросы обрабатываются
+ * на виртуальных потоках: тело запроса сразу превращается в {@link Update}
+ * и передается в тот же обработчик, что и при Long Polling.
+ * Telegram получает ответ 200, как только обновление поставлено в очередь пользователя.
+ * <p>
+ * Запросы без заголовка X-Telegram-Bot-Api-Secret-Token с секретом вебхука отклоняются.
+ * Заголовок сравнивается с секретом за время, не зависящее от совпавшего префикса.
+ */
+public class WebhookServer implements AutoCloseable {
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Consumer<Update> updates;
+    private final byte[] secret;
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Запускает сервер.
+     *
+     * @param address адрес и порт, на которых слушать
+     * @param path путь, на который Telegram присылает обновления
+     * @param secret секрет вебхука, который Telegram присылает в каждом запросе
+     * @param updates обработчик обновлений
+     * @throws IOException если порт занят
+     */
+    public WebhookServer(InetSocketAddress address, String path, String secret,
+                         Consumer<Update> updates) throws IOException {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Не задан секрет вебхука");
+        }
+        this.updates = updates;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(workers);
+        server.start();
+    }
+
+    /**
+     * Возвращает порт, на котором слушает сервер
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String header = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (header == null || !MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+
+            Update update;
+            try {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            try {
+                updates.accept(update);
+            } catch (RuntimeException e) {
+                BotLog.global().error("update_failed", null, e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    /**
+     * Останавливает прием запросов, дает текущим запросам завершиться и останавливает потоки.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        workers.shutdown();
+    }
+}
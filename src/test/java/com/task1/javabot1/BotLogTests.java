@@ -0,0 +1,155 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Тесты асинхронного журнала: формат записей, уровни, прореживание и переполнение буфера.
+ *
+ * @see BotLog
+ */
+class BotLogTests {
+    /**
+     * Записи печатаются в формате key=value, записи ниже уровня не печатаются
+     */
+    @Test
+    void testFormatAndLevels() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        try (BotLog log = BotLog.start(BotLog.Level.INFO, 1, 16, out)) {
+            log.message("42", "/balance", 1_234_567, "ok");
+            log.log(BotLog.Level.DEBUG, "hidden", "не печатается");
+            log.message("7", BotMetrics.UNKNOWN, 5_000, "unknown");
+            log.log(BotLog.Level.WARN, "send_dropped", "чат \"7\" переполнен");
+            log.error("send_failed", null, new IllegalStateException("нет сети"));
+            log.flush();
+
+            List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+            Assertions.assertTrue(lines.get(0).matches("ts=\\S+Z level=INFO event=message user=42 command=/balance "
+                    + "latency_ms=1\\.234 outcome=ok"), lines.get(0));
+            Assertions.assertTrue(lines.get(1).endsWith(" level=INFO event=message user=7 command=unknown "
+                    + "latency_ms=0.005 outcome=unknown"), lines.get(1));
+            Assertions.assertTrue(lines.get(2).endsWith(
+                    " level=WARN event=send_dropped msg=\"чат \\\"7\\\" переполнен\""), lines.get(2));
+            Assertions.assertTrue(lines.get(3).endsWith(" level=ERROR event=send_failed "
+                    + "error=\"java.lang.IllegalStateException: нет сети\""), lines.get(3));
+            Assertions.assertTrue(lines.get(5).trim().startsWith("at com.task1.javabot1.BotLogTests"), lines.get(5));
+            Assertions.assertFalse(lines.stream().anyMatch(line -> line.contains("hidden")));
+        }
+    }
+
+    /**
+     * При прореживании печатается примерно каждая N-я запись INFO, а WARN — все
+     */
+    @Test
+    void testSampling() {
+        CountingStream counting = new CountingStream();
+        try (BotLog log = BotLog.start(BotLog.Level.INFO, 10, 1 << 15, new PrintStream(counting, true))) {
+            for (int i = 0; i < 20_000; i++) {
+                log.message("user", "/balance", 1000, "ok");
+            }
+            for (int i = 0; i < 100; i++) {
+                log.message("user", "/balance", 1000, "error");
+            }
+            log.flush();
+            Assertions.assertTrue(counting.lines > 100 + 1500 && counting.lines < 100 + 2500,
+                    "lines " + counting.lines);
+            Assertions.assertEquals(0, log.getDropped());
+        }
+    }
+
+    /**
+     * Если поток печати не успевает, лишние записи отбрасываются, а пишущий поток не ждет
+     */
+    @Test
+    void testOverflowDropsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingStream counting = new CountingStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(b, off, len);
+            }
+        };
+        try (BotLog log = BotLog.start(BotLog.Level.INFO, 1, 8, new PrintStream(counting, true))) {
+            log.message("first", "/balance", 1000, "ok");
+            // дожидаемся, пока поток печати заберет первую запись и застрянет на выводе
+            writing.await();
+            for (int i = 0; i < 100; i++) {
+                log.message("user", "/balance", 1000, "ok");
+            }
+            Assertions.assertEquals(100 - 8, log.getDropped());
+            release.countDown();
+            log.flush();
+            Assertions.assertEquals(1 + 8, counting.lines);
+        }
+    }
+
+    /**
+     * Записи из нескольких потоков не теряются и не перемешиваются
+     */
+    @Test
+    void testConcurrentWriters() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        try (BotLog log = BotLog.start(BotLog.Level.INFO, 1, 1 << 16, out)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String userId = "user" + t;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        log.log(BotLog.Level.INFO, "event", userId + "-" + i);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            log.flush();
+
+            Assertions.assertEquals(0, log.getDropped());
+            Set<String> seen = new HashSet<>();
+            for (String line : bytes.toString(StandardCharsets.UTF_8).lines().toList()) {
+                Assertions.assertTrue(seen.add(line.substring(line.indexOf(" msg=") + 5)), line);
+            }
+            Assertions.assertEquals(4 * 5000, seen.size());
+        }
+    }
+
+    /**
+     * Считает строки вывода
+     */
+    private static class CountingStream extends OutputStream {
+        private volatile int lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
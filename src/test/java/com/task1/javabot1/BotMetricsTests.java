@@ -0,0 +1,151 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тесты показателей: точность гистограммы, запись из нескольких потоков,
+ * вывод в формате Prometheus и регистрация в JMX.
+ *
+ * @see BotMetrics
+ * @see LatencyHistogram
+ */
+class BotMetricsTests {
+    /**
+     * Перцентили отличаются от точных не больше чем на 1/16, максимум и сумма точные
+     */
+    @Test
+    void testHistogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        Assertions.assertEquals(10_000, histogram.getCount());
+        Assertions.assertEquals(10_000_000L, histogram.getMax());
+        Assertions.assertEquals(50_005_000_000L, histogram.getSum());
+        assertClose(5_000_000, histogram.getValueAtQuantile(0.5));
+        assertClose(9_900_000, histogram.getValueAtQuantile(0.99));
+        assertClose(9_990_000, histogram.getValueAtQuantile(0.999));
+        Assertions.assertEquals(10_000_000L, histogram.getValueAtQuantile(1));
+        Assertions.assertEquals(0, new LatencyHistogram().getValueAtQuantile(0.5));
+
+        long below = histogram.getCountAtOrBelow(2_000_000);
+        Assertions.assertTrue(below >= 2000 && below <= 2000 * 17 / 16, "below " + below);
+        for (int bucket = 0; bucket < 600; bucket++) {
+            Assertions.assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.upperBound(bucket)));
+            Assertions.assertEquals(bucket + 1, LatencyHistogram.bucketOf(LatencyHistogram.upperBound(bucket) + 1));
+        }
+    }
+
+    /**
+     * Записи из нескольких потоков не теряются
+     */
+    @Test
+    void testConcurrentRecording() throws InterruptedException {
+        BotMetrics metrics = new BotMetrics();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (i % 10 == 0) {
+                        metrics.recordError(BotMetrics.Stage.SEND, "sendmessage", offset + i);
+                    } else {
+                        metrics.record(BotMetrics.Stage.SEND, "sendmessage", offset + i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        StageStats stats = metrics.stats(BotMetrics.Stage.SEND, "sendmessage");
+        Assertions.assertEquals(400_000, stats.getCount());
+        Assertions.assertEquals(40_000, stats.getErrors());
+        Assertions.assertEquals(1, metrics.getStats().size());
+    }
+
+    /**
+     * Сервер отдает гистограммы и счетчики ошибок в текстовом формате Prometheus
+     */
+    @Test
+    void testPrometheusEndpoint() throws IOException, InterruptedException {
+        BotMetrics metrics = new BotMetrics();
+        metrics.record(BotMetrics.Stage.HANDLER, "/add_ex", 2_000_000);
+        metrics.record(BotMetrics.Stage.HANDLER, "/add_ex", 30_000_000);
+        metrics.recordError(BotMetrics.Stage.SEND, "sendmessage", 50_000);
+        metrics.record(BotMetrics.Stage.RECEIVE, "message", 1000);
+
+        try (MetricsServer server = new MetricsServer(0, metrics)) {
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/metrics");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            List<String> lines = response.body().lines().toList();
+            Assertions.assertTrue(lines.contains("# TYPE bot_stage_seconds histogram"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_bucket{stage=\"handler\",command=\"/add_ex\",le=\"0.001\"} 0"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_bucket{stage=\"handler\",command=\"/add_ex\",le=\"0.0025\"} 1"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_bucket{stage=\"handler\",command=\"/add_ex\",le=\"0.05\"} 2"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_bucket{stage=\"handler\",command=\"/add_ex\",le=\"+Inf\"} 2"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_count{stage=\"handler\",command=\"/add_ex\"} 2"));
+            Assertions.assertTrue(lines.contains("bot_stage_seconds_sum{stage=\"handler\",command=\"/add_ex\"} 0.032"));
+            Assertions.assertTrue(lines.contains("bot_stage_errors_total{stage=\"send\",command=\"sendmessage\"} 1"));
+            Assertions.assertTrue(lines.contains("bot_stage_errors_total{stage=\"handler\",command=\"/add_ex\"} 0"));
+            // Этапы выводятся по порядку обработки
+            Assertions.assertTrue(lines.indexOf("bot_stage_seconds_count{stage=\"receive\",command=\"message\"} 1")
+                    < lines.indexOf("bot_stage_seconds_count{stage=\"handler\",command=\"/add_ex\"} 2"));
+
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(405, post.statusCode());
+        }
+    }
+
+    /**
+     * Обработчик записывает ожидание, разбор и выполнение команды, а показатели видны в JMX
+     */
+    @Test
+    void testHandlerStagesAreRecorded() throws JMException {
+        BotMetrics metrics = BotMetrics.global();
+        long handled = metrics.stats(BotMetrics.Stage.HANDLER, "/balance").getCount();
+        long parsed = metrics.stats(BotMetrics.Stage.PARSE, "/balance").getCount();
+        long dispatched = metrics.stats(BotMetrics.Stage.DISPATCH, "/balance").getCount();
+        long unknown = metrics.stats(BotMetrics.Stage.HANDLER, BotMetrics.UNKNOWN).getCount();
+
+        MessageHandler handler = new MessageHandler();
+        handler.processUserInput("/balance", "metrics-user");
+        handler.processUserInput("Баланс", "metrics-user");
+        handler.processUserInput("/no_such_command", "metrics-user");
+
+        Assertions.assertEquals(handled + 2, metrics.stats(BotMetrics.Stage.HANDLER, "/balance").getCount());
+        Assertions.assertEquals(parsed + 2, metrics.stats(BotMetrics.Stage.PARSE, "/balance").getCount());
+        Assertions.assertEquals(dispatched + 2, metrics.stats(BotMetrics.Stage.DISPATCH, "/balance").getCount());
+        Assertions.assertEquals(unknown + 1, metrics.stats(BotMetrics.Stage.HANDLER, BotMetrics.UNKNOWN).getCount());
+
+        ObjectName name = new ObjectName("com.task1.javabot1:type=StageStats,stage=handler,command="
+                + ObjectName.quote("/balance"));
+        Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count");
+        Assertions.assertEquals(handled + 2, count);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected / 16,
+                "expected about " + expected + ", got " + actual);
+    }
+}
@@ -0,0 +1,89 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Тесты общего словаря категорий и неизменяемых наборов категорий.
+ *
+ * @see CategoryDictionary
+ * @see CategorySet
+ */
+class CategorySetTests {
+    /**
+     * Пользователи, не менявшие категории, ссылаются на общие наборы
+     */
+    @Test
+    void testDefaultsAreShared() {
+        UserData first = new UserData();
+        UserData second = new UserData();
+        Assertions.assertSame(first.getExpenseCategories(), second.getExpenseCategories());
+        Assertions.assertEquals(List.of("дом", "другое", "еда", "здоровье", "развлечения", "транспорт"),
+                first.getExpenseCategories());
+        Assertions.assertEquals(List.of("подарок", "работа"), first.getIncomeCategories());
+
+        first.addExpenseCategory("кафе");
+        Assertions.assertTrue(first.getExpenseCategories().contains("кафе"));
+        Assertions.assertFalse(second.getExpenseCategories().contains("кафе"));
+
+        first.deleteExpenseCategory("кафе");
+        Assertions.assertSame(second.getExpenseCategories(), first.getExpenseCategories());
+
+        first.restoreCategories(List.of("работа", "подарок", "работа"), List.of());
+        Assertions.assertSame(second.getIncomeCategories(), first.getIncomeCategories());
+        Assertions.assertEquals(List.of(), first.getExpenseCategories());
+
+        UserData third = new UserData();
+        third.restoreCategories(List.of(), List.of());
+        Assertions.assertSame(first.getExpenseCategories(), third.getExpenseCategories());
+    }
+
+    /**
+     * Добавление и удаление возвращают новый набор, не меняя исходный
+     */
+    @Test
+    void testWithAndWithout() {
+        CategorySet set = CategorySet.DEFAULT_INCOME;
+        Assertions.assertSame(set, set.with("работа"));
+        Assertions.assertSame(set, set.without("нет такой категории"));
+
+        CategorySet extended = set.with("Аренда").with("бонус");
+        Assertions.assertEquals(List.of("Аренда", "бонус", "подарок", "работа"), extended.sorted());
+        Assertions.assertTrue(extended.contains("бонус"));
+        Assertions.assertFalse(set.contains("бонус"));
+        Assertions.assertEquals(List.of("подарок", "работа"), set.sorted());
+        Assertions.assertEquals(List.of("Аренда", "подарок", "работа"), extended.without("бонус").sorted());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> extended.sorted().add("x"));
+    }
+
+    /**
+     * В общем словаре только категории по умолчанию: их названия хранятся одним экземпляром,
+     * а собственные категории пользователей в словарь не попадают
+     */
+    @Test
+    void testDictionaryHoldsOnlyDefaults() {
+        CategoryDictionary dictionary = CategoryDictionary.global();
+        String food = new StringBuilder("ед").append("а").toString();
+        Assertions.assertNotSame("еда", food);
+        Assertions.assertSame(dictionary.canonical("еда"), dictionary.canonical(food));
+
+        UserData userData = new UserData();
+        for (int i = 0; i < 1000; i++) {
+            userData.addExpenseCategory("категория" + i);
+        }
+        // собственная категория не запоминается: словарь возвращает переданную строку
+        String custom = new StringBuilder("категория").append(5).toString();
+        Assertions.assertTrue(userData.getExpenseCategories().contains(custom));
+        Assertions.assertSame(custom, dictionary.canonical(custom));
+
+        userData.addExpenseCategory(food);
+        Assertions.assertEquals(1006, userData.getExpenseCategories().size());
+        for (String name : userData.getExpenseCategories()) {
+            if (name.equals("еда")) {
+                Assertions.assertSame(dictionary.canonical("еда"), name);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Тесты разбора команд: токенизатор должен разбирать текст так же,
+ * как прежний разбор через split и регулярные выражения.
+ *
+ * @see CommandTokenizer
+ */
+class CommandTokenizerTests {
+    private static final String[] PIECES = {
+            "/add_ex", "1500", "0.5", "Продукты", "еда", "кафе", "15.12.2025", "1.12.2025",
+            "15-12-2025", "a", " ", "  ", "\t", "\n", " \t "
+    };
+
+    /**
+     * Разбор известных примеров команд
+     */
+    @Test
+    void testKnownCommands() {
+        CommandTokenizer tokens = new CommandTokenizer().command("  /add_ex 1500 Кофе с  молоком еда 01.12.2025 ");
+        Assertions.assertEquals("/add_ex", tokens.command());
+        Assertions.assertEquals("1500", tokens.amount());
+        Assertions.assertEquals("Кофе с  молоком еда 01.12.2025", tokens.name());
+
+        tokens.operation("Кофе с  молоком еда 01.12.2025");
+        Assertions.assertEquals(5, tokens.words());
+        Assertions.assertEquals("Кофе с молоком", tokens.name());
+        Assertions.assertEquals("еда", tokens.category());
+        Assertions.assertEquals("01.12.2025", tokens.date());
+
+        tokens.command("/top_ex 10");
+        Assertions.assertEquals("/top_ex", tokens.command());
+        Assertions.assertEquals("", tokens.amount());
+        Assertions.assertEquals("10", tokens.name());
+
+        tokens.operation("Зарплата 15.12.2025");
+        Assertions.assertEquals("", tokens.name());
+        Assertions.assertEquals("Зарплата", tokens.category());
+    }
+
+    /**
+     * На случайных строках результат совпадает с разбором через split("\\s+")
+     */
+    @Test
+    void testMatchesSplitOnRandomInput() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int pieces = 1 + random.nextInt(8);
+            for (int j = 0; j < pieces; j++) {
+                if (j > 0 && random.nextInt(3) > 0) {
+                    text.append(' ');
+                }
+                text.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            String input = text.toString();
+            if (input.isBlank()) {
+                continue;
+            }
+
+            CommandTokenizer tokens = new CommandTokenizer().command(input);
+            Assertions.assertEquals(splitCommand(input),
+                    List.of(tokens.command(), tokens.amount(), tokens.name()), input);
+
+            String parameters = input.trim();
+            String[] expected = splitOperation(parameters);
+            tokens.operation(parameters);
+            if (expected == null) {
+                Assertions.assertTrue(tokens.words() < 2, parameters);
+            } else {
+                Assertions.assertTrue(tokens.words() >= 2, parameters);
+                Assertions.assertEquals(expected[0], tokens.name(), parameters);
+                Assertions.assertEquals(expected[1], tokens.category(), parameters);
+                Assertions.assertEquals(expected[2], tokens.date(), parameters);
+            }
+        }
+    }
+
+    /**
+     * Прежний разбор команды из MessageHandler
+     */
+    private static List<String> splitCommand(String userInput) {
+        String[] parts = userInput.trim().split("\\s+", 3);
+        String amount = "";
+        String name = "";
+        if (parts.length == 2) {
+            name = parts[1].trim();
+        } else if (parts.length == 3) {
+            amount = parts[1].trim();
+            name = parts[2].trim();
+        }
+        return List.of(parts[0], amount, name);
+    }
+
+    /**
+     * Прежний разбор параметров операции из MessageHandler
+     *
+     * @return название, категория и дата или null, если слов меньше двух
+     */
+    private static String[] splitOperation(String parameters) {
+        String[] nameParts = parameters.split("\\s+");
+        if (nameParts.length < 2) {
+            return null;
+        }
+        String date = null;
+        int lastIndex = nameParts.length - 1;
+        if (nameParts[lastIndex].matches("\\d{2}\\.\\d{2}\\.\\d{4}")) {
+            date = nameParts[lastIndex];
+            lastIndex--;
+        }
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < lastIndex; i++) {
+            if (i > 0) name.append(" ");
+            name.append(nameParts[i]);
+        }
+        return new String[]{name.toString().trim(), nameParts[lastIndex], date};
+    }
+}
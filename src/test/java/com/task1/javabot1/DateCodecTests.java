@@ -0,0 +1,65 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Тесты разбора и вывода дат: результат должен совпадать с DateTimeFormatter dd.MM.yyyy.
+ *
+ * @see DateCodec
+ */
+class DateCodecTests {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Разбор совпадает с LocalDate.parse, включая некорректные даты
+     */
+    @Test
+    void testParseMatchesFormatter() {
+        List<String> samples = List.of("15.12.2025", "01.01.0001", "29.02.2024", "29.02.2025",
+                "31.04.2025", "32.01.2025", "00.01.2025", "10.13.2025", "10.00.2025", "01.01.0000",
+                "1.12.2025", "01.1.2025", "01-12-2025", "01.12.25", "01.12.20250", "01.12.+2025",
+                "01.12.2025 ", "аа.бб.вввв", "", "31.12.9999", "01.01.10000", "01.01.+10000", "01.01.+01234", "01.01.+00000",
+                "01.01.+999999999", "01.01.+1000000000");
+        for (String sample : samples) {
+            Assertions.assertEquals(parseWithFormatter(sample), DateCodec.parse(sample), sample);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String sample = String.format("%02d.%02d.%04d",
+                    random.nextInt(34), random.nextInt(14), random.nextInt(3000));
+            Assertions.assertEquals(parseWithFormatter(sample), DateCodec.parse(sample), sample);
+        }
+    }
+
+    /**
+     * Вывод совпадает с DateTimeFormatter, в том числе для дат, попадающих в одну ячейку кеша
+     */
+    @Test
+    void testFormatMatchesFormatter() {
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int day = 0; day < 20_000; day += 7) {
+                LocalDate date = start.plusDays(day);
+                Assertions.assertEquals(date.format(FORMATTER), DateCodec.format(date));
+            }
+        }
+        LocalDate far = LocalDate.of(12345, 6, 7);
+        Assertions.assertEquals(far.format(FORMATTER), DateCodec.format(far));
+    }
+
+    private static LocalDate parseWithFormatter(String text) {
+        try {
+            return LocalDate.parse(text, FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
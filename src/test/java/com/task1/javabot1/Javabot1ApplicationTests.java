@@ -3,6 +3,8 @@ package com.task1.javabot1;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -481,6 +483,144 @@ class MessageHandlerFinanceTests {
         Assertions.assertEquals(expected, result);
     }
 
+    /**
+     * Тест команды /top_ex с количеством и категорией.
+     */
+    @Test
+    void testTopExpensesWithLimitAndCategory() {
+        messageHandler.Response("/add_ex", "1000", "Кофе еда", userData);
+        messageHandler.Response("/add_ex", "50000", "Аренда дом", userData);
+        messageHandler.Response("/add_ex", "15000", "Продукты еда", userData);
+        messageHandler.Response("/add_ex", "2000", "Обед еда", userData);
+        messageHandler.Response("/add_ex", "30000", "Кредит другое", userData);
+        messageHandler.Response("/delete_ex", "15000", "Продукты", userData);
+
+        String result = messageHandler.Response("/top_ex", "", "4", userData);
+        String expected = String.format("📉 Топ-4 самых больших расходов:\n" +
+                "— «Аренда» на сумму %,.2f (категория: дом)\n" +
+                "— «Кредит» на сумму %,.2f (категория: другое)\n" +
+                "— «Обед» на сумму %,.2f (категория: еда)\n" +
+                "— «Кофе» на сумму %,.2f (категория: еда)", 50000.0, 30000.0, 2000.0, 1000.0);
+        Assertions.assertEquals(expected, result);
+
+        result = messageHandler.Response("/top_ex", "1", "еда", userData);
+        expected = String.format("📉 Топ-1 самых больших расходов (категория: еда):\n" +
+                "— «Обед» на сумму %,.2f (категория: еда)", 2000.0);
+        Assertions.assertEquals(expected, result);
+
+        result = messageHandler.Response("/top_ex", "", "транспорт", userData);
+        Assertions.assertEquals("— Расходов в категории «транспорт» пока нет", result);
+
+        result = messageHandler.Response("/top_ex", "", "0", userData);
+        Assertions.assertEquals("Некорректное количество: 0. Укажите число от 1 до 50.", result);
+    }
+
+    /**
+     * Тест точного сложения копеек и отклонения сумм в неподдерживаемом формате.
+     */
+    @Test
+    void testAmountsAreExact() {
+        messageHandler.Response("/add_ex", "0.1", "Спички еда", userData);
+        messageHandler.Response("/add_ex", "0.2", "Соль еда", userData);
+        String result = messageHandler.Response("/delete_ex", "0.10", "Спички", userData);
+        Assertions.assertEquals("Расход «Спички» на сумму 0.1 удален.", result);
+
+        messageHandler.Response("/add_ex", "0.1", "Спички еда", userData);
+        result = messageHandler.Response("/sum_expense", "", "", userData);
+        Assertions.assertEquals(String.format("💸 Сумма расходов: %,.2f", 0.3), result);
+
+        for (String amount : new String[]{"1e3", "NaN", "10.555", "12.", "0x10", "1500d",
+                "1000000000.01", "-1000000001", "99999999999999999999"}) {
+            result = messageHandler.Response("/add_ex", amount, "Продукты еда", userData);
+            Assertions.assertEquals("Некорректная сумма: " + amount, result);
+        }
+        result = messageHandler.Response("/add_ex", "1000000000", "Квартира дом", userData);
+        Assertions.assertTrue(result.startsWith("– Расход «Квартира»"), result);
+    }
+
+    /**
+     * Тест удаления одинаковых операций: удаляются все совпадения
+     * из категории, в которую первое совпадение было добавлено раньше.
+     */
+    @Test
+    void testDeleteRemovesMatchesFromOneCategory() {
+        messageHandler.Response("/add_ex", "500", "Подарок другое", userData);
+        messageHandler.Response("/add_ex", "500", "Подарок еда", userData);
+        messageHandler.Response("/add_ex", "500", "Подарок другое", userData);
+
+        String result = messageHandler.Response("/delete_ex", "500", "Подарок", userData);
+        Assertions.assertEquals("Расход «Подарок» на сумму 500.0 удален.", result);
+        result = messageHandler.Response("/top_ex", "", "", userData);
+        Assertions.assertEquals(String.format("📉 Топ-3 самых больших расходов:\n" +
+                "— «Подарок» на сумму %,.2f (категория: еда)", 500.0), result);
+
+        messageHandler.Response("/delete_ex", "500", "Подарок", userData);
+        result = messageHandler.Response("/delete_ex", "500", "Подарок", userData);
+        Assertions.assertEquals("Сумма 500.0 не найдена в расходе «Подарок»", result);
+    }
+
+    /**
+     * Тест постраничного вывода расходов: от новых к старым, по 20 на странице.
+     */
+    @Test
+    void testExpensePages() {
+        for (int day = 1; day <= 25; day++) {
+            String date = String.format("%02d.11.2025", day);
+            messageHandler.processUserInput("/add_ex 100 Завтрак" + day + " еда " + date, "pages");
+            messageHandler.processUserInput("/add_ex 200 Обед" + day + " еда " + date, "pages");
+        }
+
+        Reply first = messageHandler.reply("/expense", "pages");
+        String[] lines = first.getText().split("\n");
+        Assertions.assertEquals(22, lines.length);
+        Assertions.assertTrue(lines[0].startsWith("— Расход «Завтрак25»"));
+        Assertions.assertTrue(lines[1].startsWith("— Расход «Обед25»"));
+        Assertions.assertEquals("Страница 1 из 3", lines[21]);
+        Assertions.assertTrue(first.isPaged());
+        Assertions.assertEquals("/expense", first.getPageCommand());
+
+        Reply last = messageHandler.reply("/expense page 3", "pages");
+        lines = last.getText().split("\n");
+        Assertions.assertEquals(12, lines.length);
+        Assertions.assertTrue(lines[0].startsWith("— Расход «Завтрак5»"));
+        Assertions.assertTrue(lines[9].startsWith("— Расход «Обед1»"));
+        Assertions.assertEquals(3, last.getPage());
+
+        Assertions.assertEquals("Страницы 4 нет. Всего страниц: 3",
+                messageHandler.processUserInput("/expense 4", "pages"));
+        Assertions.assertEquals("Некорректный номер страницы.\nПример: /expense 2",
+                messageHandler.processUserInput("/expense вчера", "pages"));
+        Assertions.assertFalse(messageHandler.reply("/income", "pages").isPaged());
+    }
+
+    /**
+     * Тест итогов и топа после удаления большей части операций.
+     */
+    @Test
+    void testTotalsAfterManyDeletions() {
+        for (int i = 1; i <= 200; i++) {
+            messageHandler.Response("/add_ex", String.valueOf(i), "Покупка" + i + " еда", userData);
+        }
+        for (int i = 1; i <= 150; i++) {
+            messageHandler.Response("/delete_ex", String.valueOf(i), "Покупка" + i, userData);
+        }
+        messageHandler.Response("/add_ex", "175", "Обед еда", userData);
+
+        String result = messageHandler.Response("/sum_expense", "", "", userData);
+        Assertions.assertEquals(String.format("💸 Сумма расходов: %,.2f", 8950.0), result);
+
+        result = messageHandler.Response("/top_ex", "", "3", userData);
+        String expected = String.format("📉 Топ-3 самых больших расходов:\n" +
+                "— «Покупка200» на сумму %,.2f (категория: еда)\n" +
+                "— «Покупка199» на сумму %,.2f (категория: еда)\n" +
+                "— «Покупка198» на сумму %,.2f (категория: еда)", 200.0, 199.0, 198.0);
+        Assertions.assertEquals(expected, result);
+
+        result = messageHandler.Response("/top_ex", "27", "еда", userData);
+        Assertions.assertTrue(result.endsWith("— «Покупка175» на сумму " + String.format("%,.2f", 175.0)
+                + " (категория: еда)\n— «Обед» на сумму " + String.format("%,.2f", 175.0) + " (категория: еда)"));
+    }
+
     /**
      * Тест команды /sum_income при отсутствии доходов.
      */
@@ -779,9 +919,36 @@ class MessageHandlerFinanceTests {
                 " /statistic today - за сегодня\n" +
                 " /statistic week - за текущую неделю\n" +
                 " /statistic month - за текущий месяц\n" +
-                " /statistic year - за текущий год";
+                " /statistic year - за текущий год\n" +
+                " /statistic 01.01.2025 31.03.2025 - за промежуток дат";
 
         Assertions.assertEquals(expected, result);
+        Assertions.assertEquals(expected, messageHandler.Response("/statistic", "31.03.2025", "01.01.2025", userData));
+        Assertions.assertEquals(expected, messageHandler.Response("/statistic", "01.01.2025", "31.13.2025", userData));
+    }
+
+    /**
+     * Тест статистики за промежуток дат: учитываются операции с первого по последний день включительно
+     */
+    @Test
+    void testStatisticWithDateRange() {
+        messageHandler.Response("/add_in", "1000", "Аванс работа 31.12.2024", userData);
+        messageHandler.Response("/add_in", "50000", "Зарплата работа 01.01.2025", userData);
+        messageHandler.Response("/add_ex", "300", "Такси транспорт 15.02.2025", userData);
+        messageHandler.Response("/add_ex", "1500", "Продукты еда 31.03.2025", userData);
+        messageHandler.Response("/add_ex", "700", "Кино развлечения 01.04.2025", userData);
+
+        String result = messageHandler.Response("/statistic", "01.01.2025", "31.03.2025", userData);
+
+        Assertions.assertTrue(result.startsWith("Статистика за период 01.01.2025 - 31.03.2025: \n"), result);
+        Assertions.assertTrue(result.contains(String.format("Сумма доходов: %,.2f \n", 50000.0)), result);
+        Assertions.assertTrue(result.contains(String.format("Сумма расходов: %,.2f \n", 1800.0)), result);
+        Assertions.assertTrue(result.contains(String.format("• еда: %,.2f\n", 1500.0)), result);
+        Assertions.assertTrue(result.contains(String.format("• развлечения: %,.2f", 0.0)), result);
+
+        messageHandler.Response("/delete_ex", "1500", "Продукты", userData);
+        result = messageHandler.Response("/statistic", "01.01.2025", "31.03.2025", userData);
+        Assertions.assertTrue(result.contains(String.format("Сумма расходов: %,.2f \n", 300.0)), result);
     }
 
     /**
@@ -928,6 +1095,23 @@ class MessageHandlerFinanceTests {
         Assertions.assertEquals(expected, result);
     }
 
+    /**
+     *  Тест на статистику за неделю: операции до начала недели и будущие операции не учитываются
+     */
+    @Test
+    void testStatisticWeekSkipsOperationsOutsidePeriod() {
+        LocalDate now = LocalDate.now();
+        messageHandler.Response("/add_ex", "100", "Кофе еда " + now.minusDays(7).format(dateFormatter), userData);
+        messageHandler.Response("/add_ex", "200", "Обед еда " + now.minusDays(6).format(dateFormatter), userData);
+        messageHandler.Response("/add_ex", "300", "Ужин еда", userData);
+        messageHandler.Response("/add_ex", "400", "Билеты еда " + now.plusDays(1).format(dateFormatter), userData);
+
+        String result = messageHandler.Response("/statistic", "", "week", userData);
+
+        Assertions.assertTrue(result.contains(String.format("Сумма расходов: %,.2f \n", 500.0)), result);
+        Assertions.assertTrue(result.contains(String.format("• еда: %,.2f\n", 500.0)), result);
+    }
+
     /**
      * Тест успешного удаления категории расходов
      */
@@ -966,5 +1150,28 @@ class MessageHandlerFinanceTests {
 
         Assertions.assertEquals(expectedList, resultList);
     }
-}
 
+    /**
+     * Кнопки основной клавиатуры выполняют те же команды, что и их текстовые аналоги
+     */
+    @Test
+    void testKeyboardButtonsRunCommands() {
+        messageHandler.processUserInput("/add_ex 1500 Продукты еда", "1");
+        messageHandler.processUserInput("/add_in 50000 Зарплата работа", "1");
+
+        Assertions.assertEquals(messageHandler.processUserInput("/balance", "1"),
+                messageHandler.processUserInput("Баланс", "1"));
+        Assertions.assertEquals(messageHandler.processUserInput("/expense", "1"),
+                messageHandler.processUserInput("Список расходов", "1"));
+        Assertions.assertEquals(messageHandler.processUserInput("/top_in", "1"),
+                messageHandler.processUserInput("  Топ доходов ", "1"));
+
+        for (KeyboardRow row : new Keyboard().mainKeyboard().getKeyboard()) {
+            for (KeyboardButton button : row) {
+                Assertions.assertNotEquals(
+                        "Неизвестная команда.\nВведите /help для просмотра доступных команд.",
+                        messageHandler.processUserInput(button.getText(), "1"), button.getText());
+            }
+        }
+    }
+}
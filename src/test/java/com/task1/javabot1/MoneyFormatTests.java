@@ -0,0 +1,66 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Тесты вывода сумм: результат должен совпадать с String.format("%,.2f").
+ *
+ * @see MoneyFormat
+ */
+class MoneyFormatTests {
+    private static final List<Locale> LOCALES = List.of(
+            Locale.getDefault(Locale.Category.FORMAT), Locale.US, Locale.ROOT,
+            Locale.forLanguageTag("ru-RU"), Locale.GERMANY, Locale.forLanguageTag("de-CH"),
+            Locale.FRANCE, Locale.forLanguageTag("hi-IN"), Locale.forLanguageTag("ar-EG"),
+            Locale.forLanguageTag("th-TH-u-nu-thai"));
+
+    /**
+     * Пограничные суммы выводятся так же, как String.format
+     */
+    @Test
+    void testKnownAmounts() {
+        long[] amounts = {0, 1, -1, 99, 100, 999_99, 1000_00, -1000_00, 1234_56, 105000_00,
+                999_999_99, 1_000_000_00, 123_456_789_012_345L, 999_999_999_999_999L,
+                1_000_000_000_000_000L, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+        for (Locale locale : LOCALES) {
+            for (long amount : amounts) {
+                assertSameAsFormatter(Money.ofMinorUnits(amount), locale);
+            }
+        }
+    }
+
+    /**
+     * Случайные суммы разной длины выводятся так же, как String.format
+     */
+    @Test
+    void testRandomAmounts() {
+        Random random = new Random(17);
+        for (int i = 0; i < 20_000; i++) {
+            long bound = (long) Math.pow(10, 1 + random.nextInt(15));
+            long amount = random.nextLong(bound) * (random.nextBoolean() ? 1 : -1);
+            assertSameAsFormatter(Money.ofMinorUnits(amount), LOCALES.get(i % LOCALES.size()));
+        }
+    }
+
+    /**
+     * Без явной локали используется локаль по умолчанию, как у String.format
+     */
+    @Test
+    void testDefaultLocale() {
+        Money amount = Money.ofMinorUnits(123_456_789);
+        Assertions.assertEquals(String.format("%,.2f", amount.doubleValue()), MoneyFormat.format(amount));
+        Assertions.assertEquals("Итого: " + String.format("%,.2f", amount.doubleValue()),
+                MoneyFormat.append(new StringBuilder("Итого: "), amount).toString());
+    }
+
+    private static void assertSameAsFormatter(Money amount, Locale locale) {
+        Assertions.assertEquals(String.format(locale, "%,.2f", amount.doubleValue()),
+                MoneyFormat.append(new StringBuilder(), amount, locale).toString(),
+                amount + " " + locale);
+    }
+}
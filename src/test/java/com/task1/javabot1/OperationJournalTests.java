@@ -0,0 +1,218 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Тесты журнала операций и снимков: данные пользователей должны переживать перезапуск бота.
+ *
+ * @see OperationJournal
+ * @see SnapshotStore
+ */
+class OperationJournalTests {
+
+    @TempDir
+    Path dataDir;
+
+    /**
+     * Операции и категории восстанавливаются после перезапуска.
+     */
+    @Test
+    void testStateSurvivesRestart() throws IOException {
+        String incomesBefore;
+        String expensesBefore;
+        String categoriesBefore;
+        try (MessageHandler handler = new MessageHandler(dataDir)) {
+            handler.processUserInput("/add_cat_ex кафе", "1");
+            handler.processUserInput("/del_cat_in подарок", "1");
+            handler.processUserInput("/add_in 50000 Зарплата работа 15.12.2025", "1");
+            handler.processUserInput("/add_ex 1500 Продукты еда 01.12.2025", "1");
+            handler.processUserInput("/add_ex 700 Обед кафе 02.12.2025", "1");
+            handler.processUserInput("/add_ex 300 Кофе кафе 03.12.2025", "1");
+            handler.processUserInput("/delete_ex 700 Обед", "1");
+            handler.processUserInput("/add_ex 100 Автобус транспорт", "2");
+
+            incomesBefore = handler.processUserInput("/income", "1");
+            expensesBefore = handler.processUserInput("/expense", "1");
+            categoriesBefore = handler.processUserInput("/cat_in", "1");
+        }
+
+        try (MessageHandler handler = new MessageHandler(dataDir)) {
+            Assertions.assertEquals(incomesBefore, handler.processUserInput("/income", "1"));
+            Assertions.assertEquals(expensesBefore, handler.processUserInput("/expense", "1"));
+            Assertions.assertEquals(categoriesBefore, handler.processUserInput("/cat_in", "1"));
+            Assertions.assertEquals("Категория «кафе» уже существует.",
+                    handler.processUserInput("/add_cat_ex кафе", "1"));
+            Assertions.assertTrue(handler.processUserInput("/expense", "2").contains("Автобус"));
+        }
+    }
+
+    /**
+     * Недописанная запись в конце журнала отбрасывается, а остальные восстанавливаются.
+     */
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        String expensesBefore;
+        try (MessageHandler handler = new MessageHandler(dataDir)) {
+            handler.processUserInput("/add_ex 1500 Продукты еда 01.12.2025", "1");
+            expensesBefore = handler.processUserInput("/expense", "1");
+        }
+        Files.write(lastSegment(), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (MessageHandler handler = new MessageHandler(dataDir)) {
+            Assertions.assertEquals(expensesBefore, handler.processUserInput("/expense", "1"));
+            handler.processUserInput("/add_ex 300 Кофе еда 02.12.2025", "1");
+        }
+
+        try (MessageHandler handler = new MessageHandler(dataDir)) {
+            String expenses = handler.processUserInput("/expense", "1");
+            Assertions.assertTrue(expenses.contains("Продукты"));
+            Assertions.assertTrue(expenses.contains("Кофе"));
+        }
+    }
+
+    /**
+     * Если журнал не принимает запись, данные пользователя в памяти не меняются.
+     */
+    @Test
+    void testRejectedAppendLeavesDataUnchanged() throws IOException {
+        OperationJournal journal = OperationJournal.open(dataDir, OperationJournal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        UserData userData = new UserData("1", journal);
+        journal.replay(0, userId -> userData);
+        userData.addExpense("Продукты", Money.parse("1500"), "еда", "01.12.2025");
+        journal.close();
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> userData.addExpense("Кофе", Money.parse("300"), "еда", "02.12.2025"));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> userData.deleteExpense("Продукты", Money.parse("1500")));
+        Assertions.assertThrows(IllegalStateException.class, () -> userData.addExpenseCategory("кафе"));
+
+        Assertions.assertEquals(1, userData.getExpenseCount());
+        Assertions.assertEquals(Money.parse("1500"), userData.getExpenseTotal());
+        Assertions.assertFalse(userData.getExpenseCategories().contains("кафе"));
+        Assertions.assertEquals(1, userData.getVersion());
+    }
+
+    /**
+     * После снимка старые сегменты журнала удаляются,
+     * а состояние собирается из снимка и хвоста журнала.
+     */
+    @Test
+    void testSnapshotReplacesOldSegments() throws IOException {
+        String expensesBefore;
+        String categoriesBefore;
+        try (MessageHandler handler = new MessageHandler(dataDir, 3)) {
+            handler.processUserInput("/add_cat_ex кафе", "1");
+            handler.processUserInput("/add_ex 1500 Продукты еда 01.12.2025", "1");
+            handler.processUserInput("/add_ex 700 Обед кафе 02.12.2025", "1");
+            handler.processUserInput("/add_ex 100 Автобус транспорт", "2");
+            handler.processUserInput("/delete_ex 1500 Продукты", "1");
+
+            expensesBefore = handler.processUserInput("/expense", "1");
+            categoriesBefore = handler.processUserInput("/cat_ex", "1");
+        }
+
+        try (Stream<Path> files = Files.list(dataDir)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).sorted().toList();
+            Assertions.assertEquals(List.of("operations.1.journal", "snapshot.1.bin"), names);
+        }
+
+        try (MessageHandler handler = new MessageHandler(dataDir, 3)) {
+            Assertions.assertEquals(expensesBefore, handler.processUserInput("/expense", "1"));
+            Assertions.assertEquals(categoriesBefore, handler.processUserInput("/cat_ex", "1"));
+            Assertions.assertTrue(handler.processUserInput("/expense", "2").contains("Автобус"));
+        }
+    }
+
+    /**
+     * Снимки, сделанные во время параллельных команд разных пользователей,
+     * вместе с хвостом журнала восстанавливают состояние каждого пользователя.
+     */
+    @Test
+    void testSnapshotsWithConcurrentUsers() throws IOException {
+        List<String> before = new ArrayList<>();
+        try (MessageHandler handler = new MessageHandler(dataDir, 40)) {
+            List<CompletableFuture<Reply>> replies = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String userId = "user" + i % 8;
+                replies.add(handler.submit("/add_ex " + (i + 1) + " Покупка" + i + " еда", userId));
+                if (i % 5 == 4) {
+                    replies.add(handler.submit("/delete_ex " + (i + 1) + " Покупка" + i, userId));
+                }
+            }
+            CompletableFuture.allOf(replies.toArray(new CompletableFuture<?>[0])).join();
+
+            for (int user = 0; user < 8; user++) {
+                before.add(handler.processUserInput("/expense page 2", "user" + user));
+                before.add(handler.processUserInput("/sum_expense", "user" + user));
+            }
+        }
+        try (Stream<Path> files = Files.list(dataDir)) {
+            Assertions.assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("snapshot.")));
+        }
+
+        try (MessageHandler handler = new MessageHandler(dataDir, 40)) {
+            List<String> after = new ArrayList<>();
+            for (int user = 0; user < 8; user++) {
+                after.add(handler.processUserInput("/expense page 2", "user" + user));
+                after.add(handler.processUserInput("/sum_expense", "user" + user));
+            }
+            Assertions.assertEquals(before, after);
+        }
+    }
+
+    /**
+     * Неактивные пользователи выгружаются на диск и незаметно загружаются обратно,
+     * снимок включает и выгруженных пользователей, а при запуске лишние пользователи
+     * выгружаются по ходу загрузки.
+     */
+    @Test
+    void testIdleUsersAreSpilledAndReloaded() throws IOException {
+        int userCount = 100;
+        MessageHandler reference = new MessageHandler();
+        List<String> expected = new ArrayList<>();
+        try (MessageHandler handler = new MessageHandler(dataDir, 50, 3)) {
+            for (int i = 0; i < 3 * userCount; i++) {
+                String command = "/add_ex " + (i + 1) + " Покупка" + i + " еда";
+                handler.processUserInput(command, "user" + i % userCount);
+                reference.processUserInput(command, "user" + i % userCount);
+            }
+            for (int user = 0; user < userCount; user++) {
+                expected.add(reference.processUserInput("/expense", "user" + user));
+                Assertions.assertEquals(expected.get(user), handler.processUserInput("/expense", "user" + user));
+            }
+        }
+        try (Stream<Path> files = Files.list(dataDir.resolve("users"))) {
+            Assertions.assertTrue(files.findAny().isPresent());
+        }
+
+        try (MessageHandler handler = new MessageHandler(dataDir, 50, 3)) {
+            try (Stream<Path> files = Files.list(dataDir.resolve("users"))) {
+                Assertions.assertTrue(files.count() >= userCount - 3);
+            }
+            for (int user = userCount - 1; user >= 0; user--) {
+                Assertions.assertEquals(expected.get(user), handler.processUserInput("/expense", "user" + user));
+            }
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal"))
+                    .max(Comparator.comparing(file -> file.getFileName().toString()))
+                    .orElseThrow();
+        }
+    }
+}
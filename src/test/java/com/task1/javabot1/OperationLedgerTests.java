@@ -0,0 +1,217 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Тесты таблицы операций: итоги, индексы и их согласованность после изменений.
+ *
+ * @see OperationLedger
+ */
+class OperationLedgerTests {
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 15);
+
+    /**
+     * Операция, после которой итог не поместился бы в long, отклоняется и ничего не меняет
+     */
+    @Test
+    void testTotalsOverflowIsRejected() {
+        OperationLedger ledger = new OperationLedger();
+        ledger.add(new Operation("Большой", Money.ofMinorUnits(Long.MAX_VALUE - 10), "еда", DAY));
+        ledger.add(new Operation("Малый", Money.ofMinorUnits(-20), "дом", DAY));
+
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> ledger.add(new Operation("Лишний", Money.ofMinorUnits(11), "еда", DAY)));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> ledger.add(new Operation("Лишний", Money.ofMinorUnits(31), "кафе", DAY)));
+        Assertions.assertEquals(2, ledger.getCount());
+        Assertions.assertEquals(Money.ofMinorUnits(Long.MAX_VALUE - 30), ledger.getTotal());
+        Assertions.assertEquals(0, ledger.getCategoryCount("кафе"));
+
+        ledger.add(new Operation("Еще", Money.ofMinorUnits(30), "кафе", DAY));
+        Assertions.assertEquals(Money.ofMinorUnits(Long.MAX_VALUE), ledger.getTotal());
+        Assertions.assertThrows(ArithmeticException.class, () -> ledger.remove("Малый", Money.ofMinorUnits(-20)));
+        Assertions.assertEquals(3, ledger.getCount());
+        Assertions.assertEquals(Money.ofMinorUnits(-20), ledger.getCategoryTotal("дом"));
+        Assertions.assertEquals(3, ledger.getBetween(DAY, DAY).size());
+    }
+
+    /**
+     * Итоги по категориям за период совпадают с прямым подсчетом по операциям
+     * после добавлений и удалений
+     */
+    @Test
+    void testCategoryTotalsMatchOperations() {
+        OperationLedger ledger = new OperationLedger();
+        String[] categories = {"еда", "транспорт", "дом"};
+        LocalDate start = LocalDate.of(2023, 11, 20);
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            ledger.add(new Operation("Покупка" + i % 300, Money.ofMinorUnits(100 + random.nextInt(10000)),
+                    categories[random.nextInt(categories.length)], start.plusDays(random.nextInt(800))));
+        }
+        for (int i = 0; i < 300; i += 3) {
+            for (Operation operation : ledger.getAll()) {
+                if (operation.getName().equals("Покупка" + i)) {
+                    ledger.remove(operation.getName(), operation.getAmount());
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = start.plusDays(random.nextInt(820) - 10);
+            assertCategoryTotals(ledger, from, from.plusDays(random.nextInt(i % 2 == 0 ? 40 : 500)));
+        }
+
+        // Новые дни в конце, операции в уже известные дни и новая категория между запросами
+        for (int i = 0; i < 300; i++) {
+            String category = i < 150 ? categories[i % categories.length] : "здоровье";
+            LocalDate date = i % 3 == 0 ? start.plusDays(800 + i) : start.plusDays(random.nextInt(800));
+            ledger.add(new Operation("Новая" + i, Money.ofMinorUnits(100 + i), category, date));
+            if (i % 7 == 0) {
+                ledger.remove("Новая" + (i / 2), Money.ofMinorUnits(100 + i / 2));
+            }
+            LocalDate from = start.plusDays(random.nextInt(1100));
+            assertCategoryTotals(ledger, from, from.plusDays(random.nextInt(200)));
+        }
+        Assertions.assertEquals(Map.of(), ledger.getCategoryTotalsBetween(start.plusDays(5), start));
+    }
+
+    /**
+     * Новый день в середине истории, день раньше всех и новая категория после запроса
+     * сразу учитываются в итогах за период, в том числе для дат, далеких друг от друга
+     */
+    @Test
+    void testBackdatedDaysAndNewCategoriesAreCounted() {
+        OperationLedger ledger = new OperationLedger();
+        ledger.add(new Operation("Хлеб", Money.ofMinorUnits(100), "еда", DAY));
+        ledger.add(new Operation("Сыр", Money.ofMinorUnits(300), "еда", DAY.plusDays(10)));
+        Assertions.assertEquals(Map.of("еда", Money.ofMinorUnits(400)),
+                ledger.getCategoryTotalsBetween(DAY, DAY.plusDays(10)));
+
+        // новый день между известными и сразу новая категория в нем
+        ledger.add(new Operation("Кофе", Money.ofMinorUnits(50), "кафе", DAY.plusDays(5)));
+        Assertions.assertEquals(Map.of("еда", Money.ofMinorUnits(100), "кафе", Money.ofMinorUnits(50)),
+                ledger.getCategoryTotalsBetween(DAY, DAY.plusDays(5)));
+        Assertions.assertEquals(Map.of("еда", Money.ofMinorUnits(300), "кафе", Money.ofMinorUnits(50)),
+                ledger.getCategoryTotalsBetween(DAY.plusDays(5), DAY.plusDays(10)));
+
+        // новый день раньше всех, еще одна категория и новый день в конце без запросов между ними
+        ledger.add(new Operation("Такси", Money.ofMinorUnits(700), "транспорт", DAY.minusDays(3)));
+        ledger.add(new Operation("Чай", Money.ofMinorUnits(20), "кафе", DAY.plusDays(20)));
+        ledger.add(new Operation("Булка", Money.ofMinorUnits(30), "еда", DAY.plusDays(5)));
+        Assertions.assertEquals(Map.of("транспорт", Money.ofMinorUnits(700), "еда", Money.ofMinorUnits(430),
+                        "кафе", Money.ofMinorUnits(70)),
+                ledger.getCategoryTotalsBetween(DAY.minusDays(3), DAY.plusDays(20)));
+        Assertions.assertEquals(Map.of("еда", Money.ofMinorUnits(30), "кафе", Money.ofMinorUnits(50)),
+                ledger.getCategoryTotalsBetween(DAY.plusDays(1), DAY.plusDays(9)));
+        assertCategoryTotals(ledger, DAY.minusDays(5), DAY.plusDays(30));
+
+        LocalDate first = LocalDate.of(1, 1, 1);
+        LocalDate last = LocalDate.of(9999, 12, 31);
+        ledger.add(new Operation("Клад", Money.ofMinorUnits(5), "дом", first));
+        ledger.add(new Operation("Вклад", Money.ofMinorUnits(9), "дом", last));
+        Assertions.assertEquals(Map.of("дом", Money.ofMinorUnits(5)), ledger.getCategoryTotalsBetween(first, first));
+        Assertions.assertEquals(Map.of("дом", Money.ofMinorUnits(9)),
+                ledger.getCategoryTotalsBetween(DAY.plusDays(21), last));
+        assertCategoryTotals(ledger, first, last);
+    }
+
+    /**
+     * Самые большие операции, общие и по категориям, совпадают с сортировкой всех операций
+     * после добавлений, удалений и вычистки удаленных строк
+     */
+    @Test
+    void testLargestMatchesOperations() {
+        OperationLedger ledger = new OperationLedger();
+        String[] categories = {"еда", "транспорт", "дом", "кафе"};
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                ledger.add(new Operation("Покупка" + random.nextInt(50), Money.ofMinorUnits(random.nextInt(40) * 100),
+                        categories[random.nextInt(categories.length)], DAY.plusDays(random.nextInt(30))));
+            }
+            List<Operation> current = ledger.getAll();
+            for (int i = 0; i < 150; i++) {
+                Operation operation = current.get(random.nextInt(current.size()));
+                ledger.remove(operation.getName(), operation.getAmount());
+            }
+
+            List<Operation> all = new ArrayList<>(ledger.getAll());
+            all.sort(Comparator.comparing(Operation::getAmount).reversed());
+            Assertions.assertEquals(describe(all.subList(0, Math.min(50, all.size()))),
+                    describe(ledger.getLargest(50, null)));
+            Assertions.assertEquals(describe(all), describe(ledger.getLargest(Integer.MAX_VALUE, null)));
+            for (String category : categories) {
+                List<Operation> expected = all.stream()
+                        .filter(operation -> operation.getCategory().equals(category))
+                        .limit(10)
+                        .toList();
+                Assertions.assertEquals(describe(expected), describe(ledger.getLargest(10, category)), category);
+            }
+        }
+    }
+
+    /**
+     * Удаленные строки, которые еще не вычищены, не попадают в страницы и выборки по датам;
+     * после вычистки результаты те же
+     */
+    @Test
+    void testDeletedRowsAreSkipped() {
+        OperationLedger ledger = new OperationLedger();
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            ledger.add(new Operation("Покупка" + i, Money.ofMinorUnits(100 + i), "еда",
+                    DAY.plusDays(random.nextInt(20))));
+        }
+        for (int round = 0; round < 6; round++) {
+            List<Operation> current = ledger.getAll();
+            for (int i = 0; i < 40; i++) {
+                Operation operation = current.get(random.nextInt(current.size()));
+                ledger.remove(operation.getName(), operation.getAmount());
+            }
+
+            List<Operation> newestFirst = new ArrayList<>(ledger.getAll());
+            newestFirst.sort(Comparator.comparing(Operation::getDate).reversed());
+            for (int offset = 0; offset <= newestFirst.size(); offset += 17) {
+                List<Operation> expected = newestFirst.subList(offset, Math.min(offset + 20, newestFirst.size()));
+                Assertions.assertEquals(describe(expected), describe(ledger.getNewestFirst(offset, 20)),
+                        "offset " + offset);
+            }
+
+            LocalDate from = DAY.plusDays(random.nextInt(10));
+            LocalDate to = from.plusDays(random.nextInt(10));
+            List<Operation> between = ledger.getAll().stream()
+                    .filter(operation -> !operation.getDate().isBefore(from) && !operation.getDate().isAfter(to))
+                    .sorted(Comparator.comparing(Operation::getDate))
+                    .toList();
+            Assertions.assertEquals(describe(between), describe(ledger.getBetween(from, to)));
+        }
+    }
+
+    private static List<String> describe(List<Operation> operations) {
+        return operations.stream()
+                .map(operation -> operation.getName() + " " + operation.getAmount() + " "
+                        + operation.getCategory() + " " + operation.getDate())
+                .toList();
+    }
+
+    private static void assertCategoryTotals(OperationLedger ledger, LocalDate from, LocalDate to) {
+        Map<String, Money> expected = new HashMap<>();
+        for (Operation operation : ledger.getAll()) {
+            if (!operation.getDate().isBefore(from) && !operation.getDate().isAfter(to)) {
+                expected.merge(operation.getCategory(), operation.getAmount(), Money::plus);
+            }
+        }
+        Assertions.assertEquals(expected, ledger.getCategoryTotalsBetween(from, to), from + " - " + to);
+    }
+}
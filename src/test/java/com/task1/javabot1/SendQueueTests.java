@@ -0,0 +1,219 @@
+package com.task1.javabot1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Тесты очереди исходящих запросов: порядок внутри чата, ограничение частоты,
+ * повтор после ошибки 429 и ограничение длины очереди.
+ *
+ * @see SendQueue
+ */
+class SendQueueTests {
+    private static final String OK = "{\"ok\":true,\"result\":"
+            + "{\"message_id\":1,\"date\":0,\"chat\":{\"id\":1,\"type\":\"private\"}}}";
+    private static final String TOO_MANY_REQUESTS = "{\"ok\":false,\"error_code\":429,"
+            + "\"description\":\"Too Many Requests: retry after 1\",\"parameters\":{\"retry_after\":1}}";
+    private static final String BAD_REQUEST = "{\"ok\":false,\"error_code\":400,"
+            + "\"description\":\"Bad Request: chat not found\"}";
+
+    private HttpServer server;
+    private final List<Long> requestTimes = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Сообщения одного чата уходят по порядку и не чаще заданной частоты,
+     * а разные чаты отправляются параллельно.
+     */
+    @Test
+    void testChatOrderAndRate() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        try (SendQueue queue = new SendQueue(method -> sent.add(((SendMessage) method).getChatId()
+                + ":" + ((SendMessage) method).getText()), 1000, 20, 100, 1000, 4)) {
+            for (int i = 0; i < 10; i++) {
+                queue.enqueue("a", message("a", "" + i));
+                queue.enqueue("b", message("b", "" + i));
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertEquals(20, sent.size());
+        for (String chat : List.of("a", "b")) {
+            List<String> texts = sent.stream().filter(text -> text.startsWith(chat + ":")).toList();
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(chat + ":" + i, texts.get(i));
+            }
+        }
+        // 3 сообщения сразу, остальные 7 — по одному за 50 мс
+        Assertions.assertTrue(elapsed >= 300, "elapsed " + elapsed);
+        Assertions.assertTrue(elapsed < 2000, "elapsed " + elapsed);
+    }
+
+    /**
+     * После ответа 429 от Telegram запрос повторяется не раньше, чем через retry_after секунд.
+     */
+    @Test
+    void testRetryAfterIsHonored() throws IOException {
+        DefaultAbsSender bot = fakeBotApi(request -> request == 0 ? TOO_MANY_REQUESTS : OK);
+        try (SendQueue queue = new SendQueue(bot::execute, 30, 1, 100, 1000, 2)) {
+            queue.enqueue("1", message("1", "Привет"));
+        }
+
+        Assertions.assertEquals(2, requestTimes.size());
+        long pause = TimeUnit.NANOSECONDS.toMillis(requestTimes.get(1) - requestTimes.get(0));
+        Assertions.assertTrue(pause >= 950, "pause " + pause);
+    }
+
+    /**
+     * Ошибка 400 не исправится повтором, поэтому запрос отправляется один раз.
+     */
+    @Test
+    void testBadRequestIsNotRetried() throws IOException {
+        DefaultAbsSender bot = fakeBotApi(request -> BAD_REQUEST);
+        try (SendQueue queue = new SendQueue(bot::execute, 30, 1, 100, 1000, 2)) {
+            queue.enqueue("1", message("1", "Привет"));
+        }
+        Assertions.assertEquals(1, requestTimes.size());
+    }
+
+    /**
+     * Когда очередь чата заполнена, новые запросы отбрасываются.
+     */
+    @Test
+    void testFullChatQueueRejects() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try (SendQueue queue = new SendQueue(method -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1000, 1000, 2, 1000, 4)) {
+            Assertions.assertTrue(queue.enqueue("1", message("1", "0")));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(queue.enqueue("1", message("1", "1")));
+            Assertions.assertTrue(queue.enqueue("1", message("1", "2")));
+            Assertions.assertFalse(queue.enqueue("1", message("1", "3")));
+            Assertions.assertTrue(queue.enqueue("2", message("2", "0")));
+            release.countDown();
+        }
+    }
+
+    /**
+     * Одновременно выполняется не больше запросов, чем соединений у HTTP-клиента,
+     * поэтому лишние запросы не ждут соединения внутри клиента и все доходят до сервера.
+     * Клиент telegrambots держит два соединения с хостом, поэтому очередь ограничена двумя.
+     */
+    @Test
+    void testConcurrentRequestsAreLimited() throws IOException {
+        DefaultAbsSender bot = fakeBotApi(request -> OK);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (SendQueue queue = new SendQueue(method -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                bot.execute(method);
+            } finally {
+                running.decrementAndGet();
+            }
+        }, 1000, 1000, 100, 1000, 2)) {
+            for (int i = 0; i < 50; i++) {
+                queue.enqueue(Integer.toString(i), message(Integer.toString(i), "Привет"));
+            }
+        }
+
+        Assertions.assertEquals(50, requestTimes.size());
+        Assertions.assertTrue(maxRunning.get() <= 2, "running " + maxRunning.get());
+    }
+
+    /**
+     * Чат без запросов удаляется из очереди, как только наполнится его ведро,
+     * поэтому разовые сообщения во множество чатов не накапливают состояние.
+     */
+    @Test
+    void testIdleChatsAreRemoved() throws InterruptedException {
+        SendQueue queue = new SendQueue(method -> {
+        }, 10_000, 20, 100, 10_000, 4);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Assertions.assertTrue(queue.enqueue(Integer.toString(i), message(Integer.toString(i), "Привет")));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (queue.chatCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(0, queue.chatCount());
+
+            // после удаления чат создается заново и снова принимает запросы
+            Assertions.assertTrue(queue.enqueue("1", message("1", "Еще раз")));
+        } finally {
+            queue.close();
+        }
+    }
+
+    private static SendMessage message(String chatId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+        return message;
+    }
+
+    /**
+     * Запускает локальный сервер, который отвечает на запросы Bot API
+     * заданными JSON-ответами, и создает клиента, направленного на него.
+     *
+     * @param responses ответ по номеру запроса
+     */
+    private DefaultAbsSender fakeBotApi(IntFunction<String> responses) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> respond(exchange, responses));
+        server.start();
+
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/bot");
+        return new DefaultAbsSender(options, "token") {
+        };
+    }
+
+    private void respond(HttpExchange exchange, IntFunction<String> responses) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        int request;
+        synchronized (requestTimes) {
+            request = requestTimes.size();
+            requestTimes.add(System.nanoTime());
+        }
+        byte[] body = responses.apply(request).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.task1.javabot1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты отправки запросов через собственный пул соединений.
+ *
+ * @see TelegramHttpSender
+ */
+class TelegramHttpSenderTests {
+    private static final String OK = "{\"ok\":true,\"result\":"
+            + "{\"message_id\":1,\"date\":0,\"chat\":{\"id\":1,\"type\":\"private\"}}}";
+    private static final String BAD_REQUEST = "{\"ok\":false,\"error_code\":400,"
+            + "\"description\":\"Bad Request: chat not found\"}";
+
+    private HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Запрос уходит методом Bot API в формате JSON, а ошибка Telegram возвращается с кодом
+     */
+    @Test
+    void testSendAndError() throws Exception {
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        String baseUrl = startServer(exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestURI().getPath() + " " + body);
+            respond(exchange, body.contains("\"chat_id\":\"404\"") ? BAD_REQUEST : OK);
+        });
+
+        try (TelegramHttpSender sender = new TelegramHttpSender(baseUrl, "token", 4)) {
+            sender.send(message("1"));
+            TelegramApiRequestException error = Assertions.assertThrows(TelegramApiRequestException.class,
+                    () -> sender.send(message("404")));
+            Assertions.assertEquals(400, error.getErrorCode());
+        }
+        Assertions.assertTrue(requests.get(0).startsWith("/bottoken/sendmessage {"), requests.get(0));
+        Assertions.assertTrue(requests.get(0).contains("\"text\":\"Привет\""), requests.get(0));
+    }
+
+    /**
+     * Пул открывает столько соединений с одним хостом, сколько задано, а не два
+     */
+    @Test
+    void testPoolAllowsConfiguredConnections() throws Exception {
+        int connections = 6;
+        CountDownLatch arrived = new CountDownLatch(connections);
+        String baseUrl = startServer(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            arrived.countDown();
+            try {
+                // ответ приходит, только когда все запросы одновременно дошли до сервера
+                arrived.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, OK);
+        });
+
+        try (TelegramHttpSender sender = new TelegramHttpSender(baseUrl, "token", connections)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        sender.send(message("1"));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            Assertions.assertTrue(arrived.await(5, TimeUnit.SECONDS), "arrived " + arrived.getCount());
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+
+    private static SendMessage message(String chatId) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText("Привет");
+        return message;
+    }
+
+    /**
+     * Запускает локальный сервер и возвращает адрес Bot API на нем
+     */
+    private String startServer(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", handler);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    private static void respond(HttpExchange exchange, String response) throws IOException {
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
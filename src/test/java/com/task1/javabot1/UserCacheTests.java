@@ -0,0 +1,65 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Тесты выгрузки неактивных пользователей на диск.
+ *
+ * @see UserCache
+ */
+class UserCacheTests {
+
+    @TempDir
+    Path spillDirectory;
+
+    /**
+     * Выгружаются дольше всех неактивные пользователи и только сверх предела,
+     * а выгруженный пользователь со своими данными загружается при следующем обращении.
+     */
+    @Test
+    void testLeastRecentlyUsedAreSpilled() throws IOException {
+        UserCache cache = new UserCache(userId -> new UserData(userId, null), spillDirectory, 3);
+        cache.get("a");
+        cache.get("b").addExpense("Кофе", Money.parse("300"), "еда", "01.12.2025");
+        cache.get("c");
+        Assertions.assertEquals(List.of(), cache.overflow());
+
+        cache.get("a");
+        cache.get("d");
+        cache.get("e");
+        Assertions.assertEquals(List.of("b", "c"), cache.overflow());
+        // уже выбранные пользователи не возвращаются повторно
+        Assertions.assertEquals(List.of(), cache.overflow());
+
+        cache.evict("b");
+        cache.evict("c");
+        Assertions.assertEquals(3, cache.residentCount());
+        Assertions.assertFalse(cache.isResident("b"));
+
+        Assertions.assertEquals(1, cache.get("b").getExpenseCount());
+        Assertions.assertEquals(4, cache.residentCount());
+        Assertions.assertEquals(List.of("a"), cache.overflow());
+    }
+
+    /**
+     * Пользователь, написавший боту после выбора для выгрузки, остается в памяти.
+     */
+    @Test
+    void testActiveUserIsNotSpilled() throws IOException {
+        UserCache cache = new UserCache(userId -> new UserData(userId, null), spillDirectory, 1);
+        cache.get("a");
+        cache.get("b");
+        Assertions.assertEquals(List.of("a"), cache.overflow());
+
+        cache.get("a");
+        cache.evict("a");
+        Assertions.assertTrue(cache.isResident("a"));
+        Assertions.assertEquals(2, cache.residentCount());
+    }
+}
@@ -0,0 +1,118 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты почтовых ящиков пользователей: порядок задач одного пользователя,
+ * параллельное выполнение задач разных пользователей и удаление пустых ящиков.
+ *
+ * @see UserMailboxes
+ */
+class UserMailboxesTests {
+
+    /**
+     * Задачи одного ключа выполняются в порядке поступления.
+     */
+    @Test
+    void testTasksOfOneKeyRunInOrder() {
+        Map<String, List<Integer>> results = new HashMap<>();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        try (UserMailboxes mailboxes = new UserMailboxes()) {
+            for (int i = 0; i < 1000; i++) {
+                String key = "user" + i % 10;
+                List<Integer> keyResults = results.computeIfAbsent(key, k -> new ArrayList<>());
+                int number = i;
+                done.add(mailboxes.submit(key, () -> keyResults.add(number)));
+            }
+            CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        for (int key = 0; key < 10; key++) {
+            List<Integer> keyResults = results.get("user" + key);
+            Assertions.assertEquals(100, keyResults.size());
+            for (int i = 0; i < keyResults.size(); i++) {
+                Assertions.assertEquals(key + i * 10, keyResults.get(i));
+            }
+        }
+    }
+
+    /**
+     * Зависшая задача одного пользователя не задерживает других пользователей,
+     * а ошибка задачи не останавливает очередь.
+     */
+    @Test
+    void testSlowKeyDoesNotBlockOthers() throws InterruptedException {
+        CountDownLatch otherUserServed = new CountDownLatch(1);
+        try (UserMailboxes mailboxes = new UserMailboxes()) {
+            CompletableFuture<Void> slow = mailboxes.submit("slow", () -> {
+                try {
+                    otherUserServed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            mailboxes.submit("fast", () -> {
+                throw new IllegalStateException("ошибка обработки");
+            });
+            mailboxes.submit("fast", otherUserServed::countDown);
+
+            Assertions.assertTrue(otherUserServed.await(10, TimeUnit.SECONDS));
+            slow.join();
+        }
+    }
+
+    /**
+     * Ящик без задач убирается, а ящик с новой задачей остается,
+     * и задачи после удаления выполняются по порядку в новом ящике.
+     */
+    @Test
+    void testIdleMailboxIsRemoved() {
+        List<Integer> results = new ArrayList<>();
+        try (UserMailboxes mailboxes = new UserMailboxes()) {
+            mailboxes.submit("user", () -> {
+                results.add(1);
+                mailboxes.removeIfIdle("user");
+            }).join();
+            Assertions.assertEquals(0, mailboxes.mailboxCount());
+
+            CountDownLatch release = new CountDownLatch(1);
+            mailboxes.submit("user", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                results.add(2);
+                mailboxes.removeIfIdle("user");
+            });
+            CompletableFuture<Void> last = mailboxes.submit("user", () -> results.add(3));
+            release.countDown();
+            last.join();
+            Assertions.assertEquals(1, mailboxes.mailboxCount());
+
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int i = 4; i < 1000; i++) {
+                int number = i;
+                done.add(mailboxes.submit("user", () -> {
+                    results.add(number);
+                    mailboxes.removeIfIdle("user");
+                }));
+            }
+            CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+            Assertions.assertEquals(0, mailboxes.mailboxCount());
+        }
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals(i + 1, results.get(i));
+        }
+        Assertions.assertEquals(999, results.size());
+    }
+}
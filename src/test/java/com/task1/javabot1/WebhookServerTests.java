@@ -0,0 +1,103 @@
+package com.task1.javabot1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты приема обновлений через вебхук: обновления присылаются локальными POST-запросами.
+ *
+ * @see WebhookServer
+ */
+class WebhookServerTests {
+    private static final String UPDATE = """
+            {"update_id": 1,
+             "message": {"message_id": 10, "date": 0, "text": "/add_ex 150 Кофе еда",
+                         "chat": {"id": 42, "type": "private"},
+                         "from": {"id": 7, "is_bot": false, "first_name": "Тест"}}}
+            """;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final BlockingQueue<Update> received = new LinkedBlockingQueue<>();
+    private WebhookServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Обновление из запроса передается обработчику и доходит до команд пользователя.
+     */
+    @Test
+    void testUpdateReachesHandler() throws Exception {
+        server = new WebhookServer(new InetSocketAddress("127.0.0.1", 0), "/telegram", "secret", received::add);
+
+        Assertions.assertEquals(200, post("/telegram", "secret", UPDATE));
+        Update update = received.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(update);
+        Assertions.assertEquals(42L, update.getMessage().getChatId());
+
+        MessageHandler handler = new MessageHandler();
+        String userId = update.getMessage().getFrom().getId().toString();
+        handler.processUserInput(update.getMessage().getText(), userId);
+        Assertions.assertTrue(handler.processUserInput("/expense", "7").contains("Кофе"));
+    }
+
+    /**
+     * Запросы без секрета, с неверным телом или методом отклоняются и не доходят до обработчика.
+     */
+    @Test
+    void testInvalidRequestsAreRejected() throws Exception {
+        server = new WebhookServer(new InetSocketAddress("127.0.0.1", 0), "/telegram", "secret", received::add);
+
+        Assertions.assertEquals(401, post("/telegram", null, UPDATE));
+        Assertions.assertEquals(401, post("/telegram", "wrong", UPDATE));
+        Assertions.assertEquals(400, post("/telegram", "secret", "{not json"));
+        Assertions.assertEquals(404, post("/other", "secret", UPDATE));
+
+        HttpRequest get = HttpRequest.newBuilder(uri("/telegram")).GET().build();
+        Assertions.assertEquals(405, client.send(get, HttpResponse.BodyHandlers.discarding()).statusCode());
+        Assertions.assertEquals(List.of(), List.copyOf(received));
+    }
+
+    /**
+     * Сервер без секрета не запускается.
+     */
+    @Test
+    void testSecretIsRequired() {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new WebhookServer(address, "/telegram", null, received::add));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new WebhookServer(address, "/telegram", "", received::add));
+    }
+
+    private int post(String path, String secret, String body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            request.header("X-Telegram-Bot-Api-Secret-Token", secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}